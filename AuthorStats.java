@@ -0,0 +1,79 @@
+/**
+ * AuthorStats is a point-in-time summary of one author's books in a library:
+ * how many there are, how many have been read, and their average rating.
+ * Books rated 0 count as unrated and are left out of the average.
+ */
+public class AuthorStats {
+    private final String author;
+    private final int bookCount;
+    private final int readCount;
+    private final int ratedCount;
+    private final long ratingSum;
+
+    AuthorStats(String author, int bookCount, int readCount, int ratedCount, long ratingSum) {
+        this.author = author;
+        this.bookCount = bookCount;
+        this.readCount = readCount;
+        this.ratedCount = ratedCount;
+        this.ratingSum = ratingSum;
+    }
+
+    /**
+     * Gets the author's name, spelled as on the first of their books added.
+     *
+     * @return the author's name
+     */
+    public String getAuthor() {
+        return author;
+    }
+
+    /**
+     * Gets the number of books by the author.
+     *
+     * @return the book count
+     */
+    public int getBookCount() {
+        return bookCount;
+    }
+
+    /**
+     * Gets the number of the author's books that have been read.
+     *
+     * @return the read count
+     */
+    public int getReadCount() {
+        return readCount;
+    }
+
+    /**
+     * Gets the number of the author's books with a rating above 0.
+     *
+     * @return the rated count
+     */
+    public int getRatedCount() {
+        return ratedCount;
+    }
+
+    /**
+     * Gets the average rating of the author's rated books.
+     *
+     * @return the average rating, or 0 if none of the books is rated
+     */
+    public double getAverageRating() {
+        return ratedCount == 0 ? 0 : (double) ratingSum / ratedCount;
+    }
+
+    /**
+     * Gets the share of the author's books that have been read.
+     *
+     * @return the read ratio between 0 and 1
+     */
+    public double getReadRatio() {
+        return bookCount == 0 ? 0 : (double) readCount / bookCount;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d books, %d read, average rating %.2f", author, bookCount, readCount, getAverageRating());
+    }
+}
@@ -5,12 +5,29 @@ This is encapsulated, because all the fields are private and public getter and s
 methods are there for those. This means that internal data is encapsulated because the access
 cannot be changed from outside the class without its permission.
 */
+import java.io.IOException;
+import java.util.Comparator;
+
 public class Book {
     private final String title;
     private final String author;
+    private final String titleKey;
+    private final String authorKey;
+    private byte[] titleSortKey;   // Computed on first sort.
+    private byte[] authorSortKey;
     private int rating;
     private boolean read;
 
+    /**
+     * Orders books by title in the default locale's collation order.
+     */
+    static final Comparator<Book> BY_TITLE = (a, b) -> BookKeys.SORT_KEY_ORDER.compare(a.getTitleSortKey(), b.getTitleSortKey());
+
+    /**
+     * Orders books by author in the default locale's collation order.
+     */
+    static final Comparator<Book> BY_AUTHOR = (a, b) -> BookKeys.SORT_KEY_ORDER.compare(a.getAuthorSortKey(), b.getAuthorSortKey());
+
     /**
      * Constructs a Book object with the specified title, author, and rating.
      * By default, the book is marked as unread.
@@ -22,6 +39,8 @@ public class Book {
     public Book(String title, String author, int rating) {
         this.title = title;
         this.author = author;
+        this.titleKey = BookKeys.matchKey(title);
+        this.authorKey = BookKeys.matchKey(author);
         this.rating = rating;
         this.read = false;
     }
@@ -44,6 +63,48 @@ public class Book {
         return author;
     }
 
+    /**
+     * Gets the title's match key: NFKC-normalized and case-folded.
+     *
+     * @return the title key
+     */
+    String getTitleKey() {
+        return titleKey;
+    }
+
+    /**
+     * Gets the author's match key: NFKC-normalized and case-folded.
+     *
+     * @return the author key
+     */
+    String getAuthorKey() {
+        return authorKey;
+    }
+
+    /**
+     * Gets the title's collation key bytes, computing them on first use.
+     *
+     * @return the title sort key
+     */
+    byte[] getTitleSortKey() {
+        if (titleSortKey == null) {
+            titleSortKey = BookKeys.sortKey(title);
+        }
+        return titleSortKey;
+    }
+
+    /**
+     * Gets the author's collation key bytes, computing them on first use.
+     *
+     * @return the author sort key
+     */
+    byte[] getAuthorSortKey() {
+        if (authorSortKey == null) {
+            authorSortKey = BookKeys.sortKey(author);
+        }
+        return authorSortKey;
+    }
+
     /**
      * Gets the rating of the book.
      *
@@ -63,20 +124,22 @@ public class Book {
     }
 
     /**
-     * Marks the book as read or unread.
+     * Marks the book as read or unread. Package-private: books held by a
+     * {@link Library} are changed through the library, which keeps its indexes,
+     * statistics, cache and history in step and then calls this.
      *
      * @param read true to mark the book as read, false to mark it as unread
      */
-    public void setRead(boolean read) {
+    void setRead(boolean read) {
         this.read = read;
     }
 
     /**
-     * Sets a new rating for the book.
+     * Sets a new rating for the book. Package-private, like {@link #setRead(boolean)}.
      *
      * @param rating the new rating for the book (1-5)
      */
-    public void setRating(int rating) {
+    void setRating(int rating) {
         this.rating = rating;
     }
 
@@ -88,6 +151,33 @@ public class Book {
      */
     @Override
     public String toString() {
-        return title + " by " + author + ", Rating: " + rating + (read ? " (Read)" : " (Unread)");
+        return appendTo(new StringBuilder(title.length() + author.length() + 32)).toString();
+    }
+
+    /**
+     * Appends the same text as {@link #toString()} to the given builder, so that
+     * long listings can be rendered into one reused builder without creating a
+     * string per book.
+     *
+     * @param out the builder to append to
+     * @return the builder, for chaining
+     */
+    public StringBuilder appendTo(StringBuilder out) {
+        return out.append(title).append(" by ").append(author)
+                .append(", Rating: ").append(rating)
+                .append(read ? " (Read)" : " (Unread)");
+    }
+
+    /**
+     * Appends the same text as {@link #toString()} to any appendable target,
+     * such as a buffered writer.
+     *
+     * @param out the target to append to
+     * @throws IOException if the target cannot be written
+     */
+    public void appendTo(Appendable out) throws IOException {
+        out.append(title).append(" by ").append(author).append(", Rating: ");
+        BookExporter.appendInt(rating, out);
+        out.append(read ? " (Read)" : " (Unread)");
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,166 @@
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * BookExporter streams books to a byte stream or channel in one of the supported
+ * formats. Books are written one at a time straight into a buffered writer, so an
+ * export never builds an intermediate list or string of the whole library.
+ *
+ * The CSV and JSON Lines output can be read back by {@link Library#addBooksFromFile},
+ * and the binary output by {@link BookSnapshot#read}.
+ */
+public class BookExporter {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * The formats a library can be exported to.
+     */
+    public enum Format {
+        /** RFC 4180 CSV with a title,author,rating,read header. */
+        CSV,
+        /** One JSON object per line. */
+        JSON_LINES,
+        /** The binary snapshot format described in {@link BookSnapshot}. */
+        BINARY
+    }
+
+    private BookExporter() {
+    }
+
+    /**
+     * Exports books to a channel.
+     *
+     * @param books   the books to export, e.g. the library or a query result
+     * @param channel the channel to write to; it is not closed
+     * @param format  the output format
+     * @param gzip    true to gzip the output
+     * @throws IOException if the channel cannot be written
+     */
+    public static void export(Iterable<Book> books, WritableByteChannel channel, Format format, boolean gzip) throws IOException {
+        export(books, Channels.newOutputStream(channel), format, gzip);
+    }
+
+    /**
+     * Exports books to a stream.
+     *
+     * @param books  the books to export, e.g. the library or a query result
+     * @param out    the stream to write to; it is flushed but not closed
+     * @param format the output format
+     * @param gzip   true to gzip the output
+     * @throws IOException if the stream cannot be written
+     */
+    public static void export(Iterable<Book> books, OutputStream out, Format format, boolean gzip) throws IOException {
+        OutputStream target = new FilterOutputStream(out) {
+            @Override
+            public void write(byte[] bytes, int off, int len) throws IOException {
+                out.write(bytes, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();  // Leave the caller's stream open.
+            }
+        };
+        if (gzip) {
+            target = new GZIPOutputStream(target, BUFFER_SIZE);
+        }
+        if (format == Format.BINARY) {
+            try (DataOutputStream data = new DataOutputStream(new BufferedOutputStream(target, BUFFER_SIZE))) {
+                BookSnapshot.write(books, data);
+            }
+            return;
+        }
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            if (format == Format.CSV) {
+                writeCsv(books, writer);
+            } else {
+                writeJsonLines(books, writer);
+            }
+        }
+    }
+
+    private static void writeCsv(Iterable<Book> books, Writer writer) throws IOException {
+        writer.write("title,author,rating,read\r\n");
+        for (Book book : books) {
+            writeCsvField(book.getTitle(), writer);
+            writer.write(',');
+            writeCsvField(book.getAuthor(), writer);
+            writer.write(',');
+            appendInt(book.getRating(), writer);
+            writer.write(book.isRead() ? ",true\r\n" : ",false\r\n");
+        }
+    }
+
+    private static void writeCsvField(String text, Writer writer) throws IOException {
+        boolean needsQuotes = false;
+        for (int i = 0; i < text.length() && !needsQuotes; i++) {
+            char c = text.charAt(i);
+            needsQuotes = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!needsQuotes) {
+            writer.write(text);
+            return;
+        }
+        writer.write('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"') {
+                writer.write('"');
+            }
+            writer.write(c);
+        }
+        writer.write('"');
+    }
+
+    private static void writeJsonLines(Iterable<Book> books, Writer writer) throws IOException {
+        for (Book book : books) {
+            writer.write("{\"title\":");
+            writeJsonString(book.getTitle(), writer);
+            writer.write(",\"author\":");
+            writeJsonString(book.getAuthor(), writer);
+            writer.write(",\"rating\":");
+            appendInt(book.getRating(), writer);
+            writer.write(book.isRead() ? ",\"read\":true}\n" : ",\"read\":false}\n");
+        }
+    }
+
+    private static void writeJsonString(String text, Writer writer) throws IOException {
+        writer.write('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                writer.write('\\');
+                writer.write(c);
+            } else if (c < 0x20) {
+                writer.write("\\u00");
+                writer.write(Character.forDigit(c >> 4, 16));
+                writer.write(Character.forDigit(c & 0xF, 16));
+            } else {
+                writer.write(c);
+            }
+        }
+        writer.write('"');
+    }
+
+    /**
+     * Appends a decimal int digit by digit, avoiding a temporary string. Shared
+     * with {@link Book#appendTo(Appendable)}.
+     */
+    static void appendInt(int value, Appendable out) throws IOException {
+        if (value < 0) {
+            if (value == Integer.MIN_VALUE) {
+                out.append(Integer.toString(value));
+                return;
+            }
+            out.append('-');
+            value = -value;
+        }
+        if (value >= 10) {
+            appendInt(value / 10, out);
+        }
+        out.append((char) ('0' + value % 10));
+    }
+}
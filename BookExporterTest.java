@@ -0,0 +1,87 @@
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/*
+ * File: BookExporterTest.java
+ * Description: Round-trip tests for the library export formats using JUnit 5.
+ */
+public class BookExporterTest {
+    private Library library;
+
+    @BeforeEach
+    public void setUp() {
+        library = new Library();
+        Book hobbit = new Book("The Hobbit", "J.R.R. Tolkien", 5);
+        hobbit.setRead(true);
+        library.addBook(hobbit);
+        library.addBook(new Book("Language Myths", "Bauer, \"Laurie\"", 4));
+        library.addBook(new Book("Multi\nline", "Back\\slash", 0));
+    }
+
+    private Library reimport(BookExporter.Format format) throws IOException {
+        File file = File.createTempFile("export", format == BookExporter.Format.BINARY ? ".bin" : ".txt");
+        file.deleteOnExit();
+        try (OutputStream out = new FileOutputStream(file)) {
+            library.exportTo(out, format, false);
+        }
+        Library copy = new Library();
+        if (format == BookExporter.Format.BINARY) {
+            copy.addBooksFromSnapshot(file.getPath());
+        } else {
+            copy.addBooksFromFile(file.getPath());
+        }
+        return copy;
+    }
+
+    private void assertSameBooks(Library copy) {
+        List<Book> expected = library.getAllBooksSortedByTitle();
+        List<Book> actual = copy.getAllBooksSortedByTitle();
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).toString(), actual.get(i).toString());
+        }
+    }
+
+    @Test
+    public void testCsvRoundTrip() throws IOException {
+        assertSameBooks(reimport(BookExporter.Format.CSV));
+    }
+
+    @Test
+    public void testJsonLinesRoundTrip() throws IOException {
+        assertSameBooks(reimport(BookExporter.Format.JSON_LINES));
+    }
+
+    @Test
+    public void testBinaryRoundTrip() throws IOException {
+        assertSameBooks(reimport(BookExporter.Format.BINARY));
+    }
+
+    @Test
+    public void testGzipSnapshotThroughChannel() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BookExporter.export(library.searchByRating(5), Channels.newChannel(bytes), BookExporter.Format.BINARY, true);
+        Library copy = new Library();
+        assertEquals(1, BookSnapshot.read(new ByteArrayInputStream(bytes.toByteArray()), copy));
+        assertTrue(copy.getReadBooks().get(0).getTitle().equals("The Hobbit"));
+    }
+
+    @Test
+    public void testCsvQuoting() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BookExporter.export(library.searchByRating(4), bytes, BookExporter.Format.CSV, false);
+        assertEquals("title,author,rating,read\r\nLanguage Myths,\"Bauer, \"\"Laurie\"\"\",4,false\r\n",
+                bytes.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testBinaryRoundTripsTextLongerThanWriteUtfLimit() throws IOException {
+        library.addBook(new Book("\u00e9".repeat(40_000), "Someone", 3));  // 80,000 bytes of UTF-8.
+        assertSameBooks(reimport(BookExporter.Format.BINARY));
+    }
+}
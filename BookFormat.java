@@ -0,0 +1,124 @@
+import java.io.*;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * A BookFormat recognises one catalog file format from its first line and creates
+ * parsers for it. The built-in formats are listed in {@link StandardBookFormat};
+ * further formats can be plugged in with {@link #register(BookFormat)}, and are
+ * tried before the built-in ones.
+ */
+public interface BookFormat {
+
+    /**
+     * Checks whether a file starting with the given line is in this format.
+     *
+     * @param firstLine the first line of the file
+     * @return true if this format should be used to read the file
+     */
+    boolean accepts(String firstLine);
+
+    /**
+     * Checks whether the given first line is a header rather than a record.
+     *
+     * @param firstLine the first line of the file
+     * @return true if the line should be skipped
+     */
+    boolean isHeader(String firstLine);
+
+    /**
+     * Creates a parser reading records of this format from the given stream.
+     *
+     * @param in the stream to read, positioned at the first record
+     * @return a new parser
+     */
+    BookParser newParser(Reader in);
+
+    /**
+     * Registers an additional format. Registered formats take precedence over the
+     * built-in ones, most recently registered first.
+     *
+     * @param format the format to register
+     */
+    static void register(BookFormat format) {
+        Registry.FORMATS.add(0, format);
+    }
+
+    /**
+     * Finds the format of a file from its first line. The semicolon format accepts
+     * any line, so detection always succeeds.
+     *
+     * @param firstLine the first line of the file
+     * @return the format to read the file with
+     */
+    static BookFormat detect(String firstLine) {
+        for (BookFormat format : Registry.FORMATS) {
+            if (format.accepts(firstLine)) {
+                return format;
+            }
+        }
+        return StandardBookFormat.SEMICOLON;
+    }
+
+    /**
+     * Detects the format of a stream from its first line, skips the header if there
+     * is one, and returns a parser positioned at the first record.
+     *
+     * @param in the stream to read
+     * @return a parser for the detected format
+     * @throws IOException if the stream cannot be read
+     */
+    static BookParser open(BufferedReader in) throws IOException {
+        Header header = readHeader(in);
+        return header.format.newParser(header.records);
+    }
+
+    /**
+     * Detects the format of a stream from its first line and skips that line if it
+     * is a header. An empty stream is taken to be in the semicolon format.
+     *
+     * If the first line is a record rather than a header, it is pushed back in
+     * front of the rest of the stream, so it is parsed however long it is.
+     *
+     * @param in the stream to read
+     * @return the detected format and a reader positioned at the first record
+     * @throws IOException if the stream cannot be read
+     */
+    static Header readHeader(BufferedReader in) throws IOException {
+        String firstLine = in.readLine();
+        if (firstLine == null) {
+            return new Header(StandardBookFormat.SEMICOLON, in);
+        }
+        BookFormat format = detect(firstLine);
+        if (format.isHeader(firstLine)) {
+            return new Header(format, in);
+        }
+        PushbackReader records = new PushbackReader(in, firstLine.length() + 1);
+        records.unread((firstLine + '\n').toCharArray());
+        return new Header(format, records);
+    }
+
+    /**
+     * The outcome of {@link #readHeader(BufferedReader)}: the detected format and
+     * the reader its records should be parsed from.
+     */
+    final class Header {
+        final BookFormat format;
+        final Reader records;
+
+        Header(BookFormat format, Reader records) {
+            this.format = format;
+            this.records = records;
+        }
+    }
+
+    /**
+     * Holds the registered formats; interfaces cannot have private static fields.
+     */
+    final class Registry {
+        static final List<BookFormat> FORMATS = new CopyOnWriteArrayList<>(StandardBookFormat.values());
+
+        private Registry() {
+        }
+    }
+}
@@ -0,0 +1,84 @@
+import java.text.Collator;
+import java.text.Normalizer;
+import java.util.Comparator;
+import java.util.Locale;
+
+/**
+ * BookKeys derives the normalized keys that books carry for matching and ordering.
+ *
+ * A match key is the NFKC-normalized, case-folded text. Two titles or authors match
+ * exactly when their match keys are equal. This also covers compatibility forms
+ * (ligatures, full-width letters) and multi-character folds such as sharp s to "ss".
+ *
+ * A sort key is the collation key of the text for the default locale, as bytes that
+ * compare unsigned in the collator's order. Accented names then sort next to their
+ * unaccented neighbours instead of after "z".
+ */
+class BookKeys {
+
+    /**
+     * Orders byte sort keys the way the collator that produced them orders the text.
+     */
+    static final Comparator<byte[]> SORT_KEY_ORDER = java.util.Arrays::compareUnsigned;
+
+    // Collators are not thread-safe, and sharded libraries sort their shards in parallel.
+    private static final ThreadLocal<Collator> COLLATOR = ThreadLocal.withInitial(Collator::getInstance);
+
+    private BookKeys() {
+    }
+
+    /**
+     * Computes the match key of a title or author. Plain lowercase ASCII text is its
+     * own key, so the common case allocates nothing.
+     *
+     * @param text the text
+     * @return the NFKC case-folded text
+     */
+    static String matchKey(String text) {
+        boolean upper = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= 0x80) {
+                String folded = Normalizer.normalize(text, Normalizer.Form.NFKC)
+                        .toUpperCase(Locale.ROOT).toLowerCase(Locale.ROOT);
+                return Normalizer.normalize(folded, Normalizer.Form.NFKC);
+            }
+            upper |= c >= 'A' && c <= 'Z';
+        }
+        if (!upper) {
+            return text;
+        }
+        char[] chars = text.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            if (chars[i] >= 'A' && chars[i] <= 'Z') {
+                chars[i] += 'a' - 'A';
+            }
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Computes the sort key of a title or author for the default locale.
+     *
+     * @param text the text
+     * @return the collation key bytes
+     */
+    static byte[] sortKey(String text) {
+        return COLLATOR.get().getCollationKey(text).toByteArray();
+    }
+
+    /**
+     * Hashes a match key to 64 bits for the title and author indexes.
+     *
+     * @param key a match key
+     * @return the 64-bit FNV-1a hash of the key
+     */
+    static long hash(String key) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001B3L;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,28 @@
+import java.io.IOException;
+
+/**
+ * A BookParser reads book records one at a time from the stream it was created on.
+ * Implementations reuse their internal buffers and the caller's {@link BookRecord}
+ * across calls, so a bulk import does not allocate per field or per line.
+ *
+ * Records that cannot be parsed (for example a line with no separator) are skipped
+ * and counted rather than aborting the whole import.
+ */
+public interface BookParser {
+
+    /**
+     * Reads the next record into the given holder.
+     *
+     * @param record the holder to fill; its previous contents are discarded
+     * @return true if a record was read, false at the end of the input
+     * @throws IOException if the underlying stream cannot be read
+     */
+    boolean next(BookRecord record) throws IOException;
+
+    /**
+     * Gets the number of malformed records skipped so far.
+     *
+     * @return the number of records skipped
+     */
+    int getSkippedCount();
+}
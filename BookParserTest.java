@@ -0,0 +1,97 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * File: BookParserTest.java
+ * Description: Unit tests for the import formats and their parsers using JUnit 5.
+ */
+public class BookParserTest {
+
+    private static List<Book> parse(String text) throws IOException {
+        BookParser parser = BookFormat.open(new BufferedReader(new StringReader(text)));
+        BookRecord record = new BookRecord();
+        List<Book> books = new ArrayList<>();
+        while (parser.next(record)) {
+            books.add(record.toBook());
+        }
+        return books;
+    }
+
+    @Test
+    public void testSemicolonHeaderIsSkipped() throws IOException {
+        List<Book> books = parse("Title;Author\nDune;Frank Herbert\n");
+        assertEquals(1, books.size());
+        assertEquals("Dune", books.get(0).getTitle());
+        assertEquals("Frank Herbert", books.get(0).getAuthor());
+    }
+
+    @Test
+    public void testSemicolonTitleMayContainSeparator() throws IOException {
+        List<Book> books = parse("Stitches; A Handbook;Anne Lamott\n");
+        assertEquals("Stitches; A Handbook", books.get(0).getTitle());
+        assertEquals("Anne Lamott", books.get(0).getAuthor());
+    }
+
+    @Test
+    public void testFirstRecordLongerThanHeaderSniffIsParsed() throws IOException {
+        String longTitle = "x".repeat(100_000);
+        List<Book> books = parse(longTitle + ";Anne Lamott\nDune;Frank Herbert\n");
+        assertEquals(2, books.size());
+        assertEquals(longTitle, books.get(0).getTitle());
+        assertEquals("Anne Lamott", books.get(0).getAuthor());
+    }
+
+    @Test
+    public void testMalformedLinesAreSkipped() throws IOException {
+        BookParser parser = BookFormat.open(new BufferedReader(new StringReader("no separator\n\nDune;Frank Herbert\n")));
+        BookRecord record = new BookRecord();
+        assertTrue(parser.next(record));
+        assertEquals("Dune", record.getTitle());
+        assertFalse(parser.next(record));
+        assertEquals(1, parser.getSkippedCount());
+    }
+
+    @Test
+    public void testCsvWithQuotedFields() throws IOException {
+        List<Book> books = parse("title,author,rating,read\r\n"
+                + "\"Language Myths\",\"Bauer, Laurie\",4,true\r\n"
+                + "\"The \"\"Quoted\"\" Book\",\"Line\nBreak\",,false\r\n");
+        assertEquals(2, books.size());
+        assertEquals("Bauer, Laurie", books.get(0).getAuthor());
+        assertEquals(4, books.get(0).getRating());
+        assertTrue(books.get(0).isRead());
+        assertEquals("The \"Quoted\" Book", books.get(1).getTitle());
+        assertEquals("Line\nBreak", books.get(1).getAuthor());
+        assertEquals(0, books.get(1).getRating());
+    }
+
+    @Test
+    public void testTsv() throws IOException {
+        List<Book> books = parse("title\tauthor\nDune\tFrank Herbert\nEmma\tJane Austen\t3\n");
+        assertEquals(2, books.size());
+        assertEquals("Jane Austen", books.get(1).getAuthor());
+        assertEquals(3, books.get(1).getRating());
+    }
+
+    @Test
+    public void testJsonLines() throws IOException {
+        List<Book> books = parse("{\"title\":\"Caf\\u00e9 \\\"Noir\\\"\",\"tags\":[\"a\",{\"b\":1}],\"author\":\"A. N. Other\",\"rating\":2,\"read\":true}\n"
+                + "{\"title\":\"Missing author\"}\n");
+        assertEquals(1, books.size());
+        assertEquals("Caf\u00e9 \"Noir\"", books.get(0).getTitle());
+        assertEquals("A. N. Other", books.get(0).getAuthor());
+        assertEquals(2, books.get(0).getRating());
+        assertTrue(books.get(0).isRead());
+    }
+
+    @Test
+    public void testBooksFileLoadsWithoutHeader() {
+        Library library = new Library();
+        library.addBooksFromFile("books.txt");
+        assertTrue(library.searchByTitle("Title").isEmpty());
+        assertEquals(1, library.searchByAuthor("Jennifer Ackerman").size());
+    }
+}
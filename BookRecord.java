@@ -0,0 +1,69 @@
+/**
+ * BookRecord is the reusable holder a {@link BookParser} fills in for each record
+ * it reads. The title and author are kept in builders that are cleared rather than
+ * reallocated between records, so parsing a large file only allocates the strings
+ * of the books actually created.
+ */
+public class BookRecord {
+    final StringBuilder title = new StringBuilder();
+    final StringBuilder author = new StringBuilder();
+    int rating;
+    boolean read;
+
+    /**
+     * Clears the record before the next one is parsed into it.
+     */
+    void clear() {
+        title.setLength(0);
+        author.setLength(0);
+        rating = 0;
+        read = false;
+    }
+
+    /**
+     * Gets the title of the record.
+     *
+     * @return the title of the record
+     */
+    public String getTitle() {
+        return title.toString();
+    }
+
+    /**
+     * Gets the author of the record.
+     *
+     * @return the author of the record
+     */
+    public String getAuthor() {
+        return author.toString();
+    }
+
+    /**
+     * Gets the rating of the record, 0 if the format has no rating column.
+     *
+     * @return the rating of the record
+     */
+    public int getRating() {
+        return rating;
+    }
+
+    /**
+     * Checks if the record is marked as read.
+     *
+     * @return true if the record is marked as read
+     */
+    public boolean isRead() {
+        return read;
+    }
+
+    /**
+     * Creates a book from the current contents of the record.
+     *
+     * @return a new book with the record's title, author, rating and read status
+     */
+    public Book toBook() {
+        Book book = new Book(title.toString(), author.toString(), rating);
+        book.setRead(read);
+        return book;
+    }
+}
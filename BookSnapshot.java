@@ -0,0 +1,87 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * BookSnapshot is the compact binary form of a library: a magic number followed by
+ * one length-prefixed record per book and an end marker. Unlike the text formats it
+ * round-trips every field exactly and needs no parsing beyond reading the fields back.
+ *
+ * Record layout: marker byte 1, title and author each as an int byte length followed
+ * by that many bytes of UTF-8, rating as an int, read status as a boolean.
+ */
+public class BookSnapshot {
+    static final int MAGIC = 0x4C425332;  // "LBS2"
+    private static final int RECORD = 1;
+    private static final int END = 0;
+
+    private BookSnapshot() {
+    }
+
+    /**
+     * Writes a header, one record per book and an end marker.
+     *
+     * @param books the books to write
+     * @param out   the stream to write to; it is flushed but not closed
+     * @throws IOException if the stream cannot be written
+     */
+    public static void write(Iterable<Book> books, DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        for (Book book : books) {
+            out.writeByte(RECORD);
+            writeText(out, book.getTitle());
+            writeText(out, book.getAuthor());
+            out.writeInt(book.getRating());
+            out.writeBoolean(book.isRead());
+        }
+        out.writeByte(END);
+        out.flush();
+    }
+
+    /**
+     * Reads a snapshot, gzipped or not, adding each book to the library.
+     *
+     * @param in      the stream to read
+     * @param library the library to add the books to
+     * @return the number of books read
+     * @throws IOException if the stream cannot be read or is not a snapshot
+     */
+    public static int read(InputStream in, Library library) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(in, 1 << 16);
+        buffered.mark(2);
+        boolean gzipped = buffered.read() == 0x1F && buffered.read() == 0x8B;
+        buffered.reset();
+        DataInputStream data = new DataInputStream(gzipped
+                ? new BufferedInputStream(new GZIPInputStream(buffered, 1 << 16), 1 << 16)
+                : buffered);
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a library snapshot.");
+        }
+        int count = 0;
+        while (data.readByte() == RECORD) {
+            String title = readText(data);
+            String author = readText(data);
+            Book book = new Book(title, author, data.readInt());
+            book.setRead(data.readBoolean());
+            library.addBook(book);
+            count++;
+        }
+        return count;
+    }
+
+    private static void writeText(DataOutputStream out, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readText(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("Corrupt library snapshot.");
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
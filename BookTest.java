@@ -52,4 +52,19 @@ public class BookTest {
         String expectedOutput = "The Hobbit by J.R.R. Tolkien, Rating: 5 (Unread)";
         assertEquals(expectedOutput, book.toString());
     }
+
+    @Test
+    public void testAppendToMatchesToString() {
+        StringBuilder out = new StringBuilder("> ");
+        book.setRead(true);
+        assertSame(out, book.appendTo(out));
+        assertEquals("> " + book.toString(), out.toString());
+    }
+
+    @Test
+    public void testAppendToAppendable() throws java.io.IOException {
+        java.io.StringWriter out = new java.io.StringWriter();
+        book.appendTo((Appendable) out);
+        assertEquals(book.toString(), out.toString());
+    }
 }
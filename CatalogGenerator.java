@@ -0,0 +1,148 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+
+/**
+ * CatalogGenerator writes large, realistic catalogs in the books.txt format
+ * (a "Title;Author" header, then one title;author line per book) for scale and
+ * soak testing. Output depends only on the seed, so a failing size can be
+ * regenerated exactly, and a test can replay the generator to know what a file holds.
+ *
+ * The mix deliberately includes the cases that break naive code:
+ * titles containing the ';' separator, accented, CJK and emoji text (including
+ * surrogate pairs), titles several hundred characters long, and authors drawn
+ * from a skewed pool so a few authors have very many books. Some titles repeat
+ * under different authors, and some authors appear in other letter cases.
+ *
+ * Usage: java CatalogGenerator lines file [seed]
+ */
+public class CatalogGenerator {
+    private static final String[] WORDS = {
+        "the", "of", "and", "a", "in", "night", "river", "house", "shadow", "garden",
+        "history", "secret", "war", "love", "city", "silent", "last", "first", "winter", "summer",
+        "empire", "letters", "machine", "ocean", "stone", "glass", "fire", "memory", "island", "road",
+        "daughter", "king", "song", "light", "dark", "journey", "theory", "guide", "book", "world"
+    };
+    private static final String[] UNICODE_WORDS = {
+        "caf\u00e9", "na\u00efve", "Stra\u00dfe", "\u00c5ngstr\u00f6m", "se\u00f1or", "\u0141\u00f3d\u017a",
+        "\u6771\u4eac", "\u6625\u306e\u591c", "\u0416\u0438\u0437\u043d\u044c", "\u03bb\u03cc\u03b3\u03bf\u03c2",
+        "\ud83d\udcda", "\ud83c\udf0d", "\u05e9\u05dc\u05d5\u05dd"
+    };
+    private static final String[] CLASSICS = {
+        "The Hobbit", "Dune", "Emma", "Persuasion", "It", "Collected Poems", "Selected Stories", "Untitled"
+    };
+    private static final String[] FIRST_NAMES = {
+        "Anna", "Ben", "Chioma", "Dmitri", "Elena", "Farid", "Grace", "Hiro", "Ines", "Jonas",
+        "Kavya", "Liam", "Mei", "Nadia", "Omar", "Priya", "Quinn", "Rosa", "Sven", "Tomasz",
+        "Ren\u00e9e", "Zo\u00eb", "Bj\u00f6rn", "J\u00fcrgen"
+    };
+    private static final String[] LAST_NAMES = {
+        "Adams", "Brooks", "Chen", "Dubois", "Evans", "Fischer", "Garcia", "Haddad", "Ivanova", "Jensen",
+        "Kowalski", "Lopez", "M\u00fcller", "Nakamura", "Okafor", "Petrov", "Quintero", "Rossi", "Singh", "Tanaka",
+        "O'Brien", "van der Berg", "Garc\u00eda M\u00e1rquez", "Smith-Jones"
+    };
+
+    private final SplittableRandom random;
+    private final int authorCount;
+
+    /**
+     * Creates a generator.
+     *
+     * @param seed        the seed that fully determines the output
+     * @param authorCount the size of the author pool
+     */
+    public CatalogGenerator(long seed, int authorCount) {
+        this.random = new SplittableRandom(seed);
+        this.authorCount = authorCount;
+    }
+
+    /**
+     * Generates the next book's title and author into the given builders,
+     * replacing their contents.
+     *
+     * @param title  receives the title
+     * @param author receives the author
+     */
+    public void nextBook(StringBuilder title, StringBuilder author) {
+        title.setLength(0);
+        author.setLength(0);
+        int kind = random.nextInt(100);
+        if (kind < 3) {
+            title.append(CLASSICS[random.nextInt(CLASSICS.length)]);
+        } else if (kind < 4) {
+            appendWords(title, WORDS, 60 + random.nextInt(120));  // Several hundred characters.
+        } else {
+            appendWords(title, kind < 12 ? UNICODE_WORDS : WORDS, 1 + random.nextInt(7));
+            if (kind >= 12 && kind < 18) {
+                title.append("; ");
+                appendWords(title, WORDS, 1 + random.nextInt(3));
+            }
+            title.setCharAt(0, Character.toUpperCase(title.charAt(0)));
+        }
+
+        // Cubing a uniform draw skews it towards 0, so low-numbered authors get many books.
+        double draw = random.nextDouble();
+        int index = (int) (authorCount * draw * draw * draw);
+        author.append(FIRST_NAMES[index % FIRST_NAMES.length]).append(' ')
+                .append(LAST_NAMES[(index / FIRST_NAMES.length) % LAST_NAMES.length]);
+        int generation = index / (FIRST_NAMES.length * LAST_NAMES.length);
+        if (generation > 0) {
+            author.append(' ').append(generation);
+        }
+        if (random.nextInt(50) == 0) {
+            for (int i = 0; i < author.length(); i++) {
+                author.setCharAt(i, Character.toUpperCase(author.charAt(i)));
+            }
+        }
+    }
+
+    private void appendWords(StringBuilder out, String[] words, int count) {
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                out.append(' ');
+            }
+            out.append(words[random.nextInt(words.length)]);
+        }
+    }
+
+    /**
+     * Writes a header and the given number of generated books.
+     *
+     * @param out   where to write the catalog
+     * @param lines the number of books
+     * @throws IOException if writing fails
+     */
+    public void write(Writer out, long lines) throws IOException {
+        StringBuilder title = new StringBuilder();
+        StringBuilder author = new StringBuilder();
+        out.write("Title;Author\n");
+        for (long i = 0; i < lines; i++) {
+            nextBook(title, author);
+            out.append(title).append(';').append(author).append('\n');
+        }
+    }
+
+    /**
+     * Picks an author pool size that gives each author about twenty books on average.
+     *
+     * @param lines the number of books to generate
+     * @return the author pool size
+     */
+    public static int authorsFor(long lines) {
+        return (int) Math.max(1, Math.min(Integer.MAX_VALUE, lines / 20));
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: java CatalogGenerator lines file [seed]");
+            System.exit(2);
+        }
+        long lines = Long.parseLong(args[0]);
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 1L;
+        long start = System.nanoTime();
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(args[1]), StandardCharsets.UTF_8), 1 << 16)) {
+            new CatalogGenerator(seed, authorsFor(lines)).write(out, lines);
+        }
+        System.out.printf("Wrote %d books to %s in %d ms%n", lines, args[1], (System.nanoTime() - start) / 1_000_000);
+    }
+}
@@ -0,0 +1,165 @@
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/*
+ * File: CatalogSoakTest.java
+ * Description: Scale and soak tests over generated catalogs using JUnit 5.
+ *
+ * Sizes and ceilings come from system properties so the same suite runs as a quick
+ * check by default and as a soak run on a large machine:
+ *   library.soak.lines               books to generate (default 10000)
+ *   library.soak.rounds              query and mutation rounds (default 3)
+ *   library.soak.millisPerThousand   time ceiling per phase, per 1000 books (default 200)
+ *   library.soak.maxBytesPerBook     heap ceiling after loading (default 2048)
+ *   library.soak.heapSlackBytes      allowance for garbage a collection leaves (default 32 MB)
+ * e.g. java -Dlibrary.soak.lines=1000000 -Xmx4g ... --select-class CatalogSoakTest
+ */
+public class CatalogSoakTest {
+    private static final long SEED = 20260519L;
+    private static final int LINES = Integer.getInteger("library.soak.lines", 10_000);
+    private static final int ROUNDS = Integer.getInteger("library.soak.rounds", 3);
+    private static final long MILLIS_PER_THOUSAND = Long.getLong("library.soak.millisPerThousand", 200);
+    private static final long MAX_BYTES_PER_BOOK = Long.getLong("library.soak.maxBytesPerBook", 2048);
+    private static final long HEAP_SLACK_BYTES = Long.getLong("library.soak.heapSlackBytes", 32L << 20);
+
+    private static File catalog;
+
+    @BeforeAll
+    public static void generateCatalog() throws IOException {
+        catalog = File.createTempFile("soak", ".txt");
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(catalog), StandardCharsets.UTF_8))) {
+            new CatalogGenerator(SEED, CatalogGenerator.authorsFor(LINES)).write(out, LINES);
+        }
+    }
+
+    @AfterAll
+    public static void deleteCatalog() {
+        catalog.delete();
+    }
+
+    /** Fails if a phase took longer than its share of the time budget. */
+    private static void assertWithinCeiling(String phase, long startNanos) {
+        long millis = (System.nanoTime() - startNanos) / 1_000_000;
+        long ceiling = 1_000 + MILLIS_PER_THOUSAND * LINES / 1_000;
+        assertTrue(millis <= ceiling, phase + " took " + millis + " ms, ceiling " + ceiling + " ms for " + LINES + " books");
+    }
+
+    /**
+     * Measures the live heap: collects until usage stops falling, since one request
+     * to collect may be ignored or only partly done, and keeps the lowest reading.
+     */
+    private static long usedHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            memory.gc();
+            long now = memory.getHeapMemoryUsage().getUsed();
+            if (now >= used) {
+                break;
+            }
+            used = now;
+        }
+        return used;
+    }
+
+    @Test
+    public void testGeneratorIsDeterministicAndCoversTrickyCases() {
+        CatalogGenerator first = new CatalogGenerator(SEED, 500);
+        CatalogGenerator second = new CatalogGenerator(SEED, 500);
+        CatalogGenerator other = new CatalogGenerator(SEED + 1, 500);
+        StringBuilder title = new StringBuilder(), author = new StringBuilder();
+        StringBuilder title2 = new StringBuilder(), author2 = new StringBuilder();
+        boolean separator = false, unicode = false, surrogate = false, longTitle = false, differs = false;
+        for (int i = 0; i < 5_000; i++) {
+            first.nextBook(title, author);
+            second.nextBook(title2, author2);
+            assertEquals(title.toString(), title2.toString());
+            assertEquals(author.toString(), author2.toString());
+            other.nextBook(title2, author2);
+            differs |= !title.toString().equals(title2.toString());
+            separator |= title.indexOf(";") >= 0;
+            longTitle |= title.length() > 300;
+            for (int c = 0; c < title.length(); c++) {
+                unicode |= title.charAt(c) > 127;
+                surrogate |= Character.isSurrogate(title.charAt(c));
+            }
+            assertEquals(-1, author.indexOf(";"));
+        }
+        assertTrue(separator && unicode && surrogate && longTitle && differs);
+    }
+
+    @Test
+    public void testLoadQueryAndMutateWithinCeilings() {
+        long heapBefore = usedHeap();
+        long start = System.nanoTime();
+        Library library = new Library();
+        library.addBooksFromFile(catalog.getPath());
+        assertWithinCeiling("load", start);
+        assertEquals(LINES, library.getBookCount());
+        long retained = usedHeap() - heapBefore;
+        assertTrue(retained <= MAX_BYTES_PER_BOOK * LINES + HEAP_SLACK_BYTES,
+                retained / Math.max(1, LINES) + " bytes per book, ceiling " + MAX_BYTES_PER_BOOK + " plus "
+                        + (HEAP_SLACK_BYTES >> 20) + " MB slack");
+
+        for (int round = 0; round < ROUNDS; round++) {
+            // Replay the generator so every sampled title is known to be in the file.
+            CatalogGenerator replay = new CatalogGenerator(SEED, CatalogGenerator.authorsFor(LINES));
+            StringBuilder title = new StringBuilder(), author = new StringBuilder();
+            start = System.nanoTime();
+            for (int i = 0; i < LINES; i++) {
+                replay.nextBook(title, author);
+                if (i % 7 != round) {
+                    continue;
+                }
+                String expectedAuthor = author.toString();
+                List<Book> matches = library.searchByTitle(title.toString());
+                assertTrue(matches.stream().anyMatch(b -> b.getAuthor().equals(expectedAuthor)), title + ";" + author);
+                library.rateBook(title.toString(), 1 + (i + round) % 5);
+                if (i % 3 == 0) {
+                    library.setToRead(title.toString());
+                }
+            }
+            assertWithinCeiling("query and mutate round " + round, start);
+
+            start = System.nanoTime();
+            AuthorStats top = library.getAuthorStats().get(0);
+            assertEquals(top.getBookCount(), library.searchByAuthor(top.getAuthor()).size());
+            assertEquals(library.getReadBooks().size(), library.getReadCount());
+            assertEquals(LINES, library.getReadBooks().size() + library.getUnreadBooks().size());
+            int distributed = 0;
+            for (int count : library.getRatingDistribution().values()) {
+                distributed += count;
+            }
+            assertEquals(LINES, distributed);
+            assertWithinCeiling("aggregate checks round " + round, start);
+        }
+
+        start = System.nanoTime();
+        List<Book> byTitle = library.getAllBooksSortedByTitle();
+        assertWithinCeiling("sort by title", start);
+        assertEquals(LINES, byTitle.size());
+        for (int i = 1; i < byTitle.size(); i++) {
+            assertTrue(Book.BY_TITLE.compare(byTitle.get(i - 1), byTitle.get(i)) <= 0);
+        }
+    }
+
+    @Test
+    public void testShardedLoadMatchesSingleLibrary() {
+        Library single = new Library();
+        ShardedLibrary sharded = new ShardedLibrary(4);
+        single.addBooksFromFile(catalog.getPath());
+        long start = System.nanoTime();
+        sharded.addBooksFromFile(catalog.getPath());
+        assertWithinCeiling("sharded load", start);
+        assertEquals(single.getBookCount(), sharded.getBookCount());
+        assertEquals(single.getRatingDistribution(), sharded.getRatingDistribution());
+        assertEquals(single.getAuthorStats().size(), sharded.getAuthorStats().size());
+    }
+}
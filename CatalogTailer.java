@@ -0,0 +1,97 @@
+import java.io.*;
+import java.nio.file.*;
+
+/**
+ * CatalogTailer keeps a Library in step with a catalog file that another process
+ * appends to. It watches the file's directory and, whenever the file is created or
+ * modified, ingests only the newly appended lines through
+ * {@link Library#addNewBooksFromFile(String)}.
+ *
+ * Library itself is not thread-safe, so every ingest runs while holding the
+ * library's monitor; other threads sharing the library should synchronize on it too.
+ */
+public class CatalogTailer implements Runnable, Closeable {
+    private final Library library;
+    private final Path file;
+    private final WatchService watchService;
+
+    /**
+     * Creates a tailer for the given file. Call {@link #run()} (usually on its own
+     * thread) to start following the file, and {@link #close()} to stop.
+     *
+     * @param library  the library to add new books to
+     * @param filename the catalog file to follow
+     * @throws IOException if the file's directory cannot be watched
+     */
+    public CatalogTailer(Library library, String filename) throws IOException {
+        this.library = library;
+        this.file = Paths.get(filename).toAbsolutePath().normalize();
+        this.watchService = file.getFileSystem().newWatchService();
+        file.getParent().register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+    }
+
+    /**
+     * Starts the tailer on a daemon thread.
+     *
+     * @param library  the library to add new books to
+     * @param filename the catalog file to follow
+     * @return the running tailer
+     * @throws IOException if the file's directory cannot be watched
+     */
+    public static CatalogTailer start(Library library, String filename) throws IOException {
+        CatalogTailer tailer = new CatalogTailer(library, filename);
+        Thread thread = new Thread(tailer, "catalog-tailer");
+        thread.setDaemon(true);
+        thread.start();
+        return tailer;
+    }
+
+    /**
+     * Ingests whatever is already in the file, then blocks following appends until
+     * the tailer is closed.
+     */
+    @Override
+    public void run() {
+        ingest();
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    Object context = event.context();
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW
+                            || (context instanceof Path && file.getFileName().equals(context))) {
+                        changed = true;
+                    }
+                }
+                if (changed) {
+                    ingest();
+                }
+                if (!key.reset()) {
+                    return;  // The directory is gone.
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();  // Let the thread's owner see why tailing stopped.
+        } catch (ClosedWatchServiceException e) {
+            // Closed; stop tailing.
+        }
+    }
+
+    /**
+     * Stops following the file.
+     */
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+
+    private void ingest() {
+        if (Files.exists(file)) {
+            synchronized (library) {
+                library.addNewBooksFromFile(file.toString());
+            }
+        }
+    }
+}
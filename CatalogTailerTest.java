@@ -0,0 +1,59 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+/*
+ * File: CatalogTailerTest.java
+ * Description: Tests that CatalogTailer follows appends to a catalog file using JUnit 5.
+ */
+
+public class CatalogTailerTest {
+
+    private static void append(File file, String text) throws IOException {
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8)) {
+            writer.write(text);
+        }
+    }
+
+    /** Waits for the tailer to bring the library up to the expected size. */
+    private static void awaitBookCount(Library library, int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (System.currentTimeMillis() < deadline) {
+            synchronized (library) {
+                if (library.getBookCount() >= expected) {
+                    return;
+                }
+            }
+            Thread.sleep(20);
+        }
+        fail("Timed out waiting for " + expected + " books");
+    }
+
+    @Test
+    public void testAppendedBooksArriveExactlyOnce() throws Exception {
+        File dir = java.nio.file.Files.createTempDirectory("tail").toFile();
+        File file = new File(dir, "catalog.txt");
+        append(file, "Dune;Frank Herbert\n");
+        Library library = new Library();
+        CatalogTailer tailer = CatalogTailer.start(library, file.getPath());
+        try {
+            awaitBookCount(library, 1);
+            append(file, "Emma;Jane Austen\nBeloved;Toni Morrison\n");
+            awaitBookCount(library, 3);
+            append(file, "Ulysses;James Joyce\n");
+            awaitBookCount(library, 4);
+            Thread.sleep(200);  // Give any duplicate ingest a chance to show up.
+            synchronized (library) {
+                assertEquals(4, library.getBookCount());
+                for (String title : new String[]{"Dune", "Emma", "Beloved", "Ulysses"}) {
+                    assertEquals(1, library.searchByTitle(title).size(), title);
+                }
+            }
+        } finally {
+            tailer.close();
+            file.delete();
+            dir.delete();
+        }
+    }
+}
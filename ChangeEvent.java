@@ -0,0 +1,128 @@
+/**
+ * A ChangeEvent is one entry of a library's audit history: a book being added, or
+ * its rating or read status changing, together with when it happened. Events are
+ * only materialized when history is queried; the log itself keeps them in
+ * primitive arrays.
+ */
+public class ChangeEvent {
+
+    /**
+     * What kind of change an event records.
+     */
+    public enum Kind {
+        /** The book was added to the library. */
+        ADDED,
+        /** The book's rating or read status was changed. */
+        UPDATED,
+        /** An earlier update was undone. */
+        UNDONE,
+        /** An undone update was applied again. */
+        REDONE
+    }
+
+    private final long sequence;
+    private final long timeMillis;
+    private final Kind kind;
+    private final Book book;
+    private final int oldRating;
+    private final boolean oldRead;
+    private final int newRating;
+    private final boolean newRead;
+
+    ChangeEvent(long sequence, long timeMillis, Kind kind, Book book, int oldRating, boolean oldRead, int newRating, boolean newRead) {
+        this.sequence = sequence;
+        this.timeMillis = timeMillis;
+        this.kind = kind;
+        this.book = book;
+        this.oldRating = oldRating;
+        this.oldRead = oldRead;
+        this.newRating = newRating;
+        this.newRead = newRead;
+    }
+
+    /**
+     * Gets the event's position in the library's history; later events have larger numbers.
+     *
+     * @return the sequence number
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Gets when the change was made.
+     *
+     * @return the time in milliseconds since the epoch
+     */
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+
+    /**
+     * Gets what kind of change this was.
+     *
+     * @return the kind
+     */
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Gets the book that changed, as it is now.
+     *
+     * @return the book
+     */
+    public Book getBook() {
+        return book;
+    }
+
+    /**
+     * Gets the rating before the change; for an added book, its initial rating.
+     *
+     * @return the old rating
+     */
+    public int getOldRating() {
+        return oldRating;
+    }
+
+    /**
+     * Gets the read status before the change; for an added book, its initial status.
+     *
+     * @return the old read status
+     */
+    public boolean getOldRead() {
+        return oldRead;
+    }
+
+    /**
+     * Gets the rating after the change.
+     *
+     * @return the new rating
+     */
+    public int getNewRating() {
+        return newRating;
+    }
+
+    /**
+     * Gets the read status after the change.
+     *
+     * @return the new read status
+     */
+    public boolean getNewRead() {
+        return newRead;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        text.append(String.format("#%d %tF %<tT %s ", sequence, timeMillis, kind));
+        book.appendTo(text);
+        if (kind == Kind.ADDED) {
+            text.append(String.format(" (rating %d, %s)", newRating, newRead ? "read" : "unread"));
+        } else {
+            text.append(String.format(" (rating %d -> %d, %s -> %s)", oldRating, newRating,
+                    oldRead ? "read" : "unread", newRead ? "read" : "unread"));
+        }
+        return text.toString();
+    }
+}
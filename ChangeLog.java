@@ -0,0 +1,321 @@
+import java.io.*;
+import java.util.*;
+import java.util.function.IntFunction;
+
+/**
+ * ChangeLog records every change made to a library's books, as compact events in
+ * primitive ring buffers, and keeps the undo/redo history of rating and read changes.
+ *
+ * The audit ring holds the most recent events, each stored as a book id, old and
+ * new rating, old and new read status, a kind and a timestamp. When the ring is full,
+ * the oldest event is dropped, or appended to a spill file first if one is set,
+ * so the full history stays queryable. Spilled events are chained per book, so
+ * looking up one book's history seeks to its records instead of reading the file.
+ *
+ * The undo ring holds the last updates that can be undone. Entries before the
+ * cursor can be undone, and entries from the cursor to the end can be redone. A new
+ * update discards the redo entries. Undo and redo move the cursor and are O(1).
+ * Adding a book is recorded for auditing but cannot be undone.
+ *
+ * Sharded libraries share one log between their shards, whose imports run in
+ * parallel, so every method is synchronized.
+ */
+class ChangeLog {
+    static final int DEFAULT_CAPACITY = 4096;
+    static final int DEFAULT_UNDO_DEPTH = 256;
+    private static final ChangeEvent.Kind[] KINDS = ChangeEvent.Kind.values();
+    private static final int OLD_READ = 0x10;  // Flag bits stored above the kind ordinal.
+    private static final int NEW_READ = 0x20;
+    private static final int KIND_MASK = 0x0F;
+    private static final int SPILL_RECORD_BYTES = 8 + 8 + 4 + 4 + 4 + 1;
+
+    private final int mask;
+    private final long[] times;
+    private final int[] bookIds;
+    private final int[] oldRatings;
+    private final int[] newRatings;
+    private final byte[] flags;
+    private long nextSequence;
+    private File spillFile;
+    private DataOutputStream spill;
+    private IntIntHashMap spillHeads = new IntIntHashMap(-1);  // Book id to its last spilled record.
+    private IntArrayList spillPrevious = new IntArrayList();   // Record to the book's record before it.
+    private long lastSpilledSequence = -1;
+    private long lastSpilledTime = Long.MIN_VALUE;
+    private long lostSequence = -1;            // The newest event neither in memory nor spilled.
+    private long lostTime = Long.MIN_VALUE;
+
+    private final int undoDepth;
+    private final int[] undoBookIds;
+    private final int[] undoOldRatings;
+    private final int[] undoNewRatings;
+    private final byte[] undoFlags;
+    private long undoFloor;   // Oldest entry still held.
+    private long undoCursor;  // Entries before this can be undone.
+    private long undoEnd;     // Entries from the cursor up to this can be redone.
+    private ChangeEvent.Kind replaying;  // Set while an undo or redo is being applied.
+    private boolean recordingUndo = true;  // Off while applying changes that are not the user's.
+
+    /**
+     * Creates a log.
+     *
+     * @param capacity  the number of events kept in memory, rounded up to a power of two
+     * @param undoDepth the number of updates that can be undone
+     */
+    ChangeLog(int capacity, int undoDepth) {
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        mask = size - 1;
+        times = new long[size];
+        bookIds = new int[size];
+        oldRatings = new int[size];
+        newRatings = new int[size];
+        flags = new byte[size];
+        this.undoDepth = undoDepth;
+        undoBookIds = new int[undoDepth];
+        undoOldRatings = new int[undoDepth];
+        undoNewRatings = new int[undoDepth];
+        undoFlags = new byte[undoDepth];
+    }
+
+    /**
+     * Starts appending events that fall out of the ring to a file, replacing its contents.
+     *
+     * @param file the spill file
+     * @throws IOException if the file cannot be created
+     */
+    synchronized void spillTo(File file) throws IOException {
+        close();
+        if (lastSpilledSequence > lostSequence) {  // The old file's events are no longer queryable.
+            lostSequence = lastSpilledSequence;
+            lostTime = lastSpilledTime;
+        }
+        spill = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        spillFile = file;
+        spillHeads = new IntIntHashMap(-1);
+        spillPrevious = new IntArrayList();
+    }
+
+    /**
+     * Flushes and closes the spill file, if any. Events already spilled stay queryable.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    synchronized void close() throws IOException {
+        if (spill != null) {
+            spill.close();
+            spill = null;
+        }
+    }
+
+    /**
+     * Records that a book was added.
+     */
+    synchronized void recordAdded(int bookId, int rating, boolean read) {
+        append(ChangeEvent.Kind.ADDED, bookId, rating, read, rating, read);
+    }
+
+    /**
+     * Turns undo recording on or off. While it is off, updates are still audited
+     * but cannot be undone; used for changes another process made.
+     *
+     * @param recording false to stop recording undo entries
+     */
+    synchronized void setRecordingUndo(boolean recording) {
+        recordingUndo = recording;
+    }
+
+    /**
+     * Records a rating or read change. Unless it is being applied by undo or redo, or
+     * undo recording is off, the change becomes the most recent undoable update and
+     * the redo history is dropped.
+     */
+    synchronized void recordUpdated(int bookId, int oldRating, boolean oldRead, int newRating, boolean newRead) {
+        append(replaying != null ? replaying : ChangeEvent.Kind.UPDATED, bookId, oldRating, oldRead, newRating, newRead);
+        if (replaying == null && recordingUndo) {
+            int slot = (int) (undoCursor % undoDepth);
+            undoBookIds[slot] = bookId;
+            undoOldRatings[slot] = oldRating;
+            undoNewRatings[slot] = newRating;
+            undoFlags[slot] = readFlags(oldRead, newRead);
+            undoEnd = ++undoCursor;
+            if (undoCursor - undoFloor > undoDepth) {
+                undoFloor++;
+            }
+        }
+    }
+
+    private void append(ChangeEvent.Kind kind, int bookId, int oldRating, boolean oldRead, int newRating, boolean newRead) {
+        int slot = (int) (nextSequence & mask);
+        if (nextSequence > mask) {
+            if (spill != null) {
+                writeSpilled(nextSequence - times.length, slot);
+            }
+            if (spill == null) {  // Not spilling, or the write just failed.
+                lostSequence = nextSequence - times.length;
+                lostTime = times[slot];
+            }
+        }
+        times[slot] = System.currentTimeMillis();
+        bookIds[slot] = bookId;
+        oldRatings[slot] = oldRating;
+        newRatings[slot] = newRating;
+        flags[slot] = (byte) (kind.ordinal() | readFlags(oldRead, newRead));
+        nextSequence++;
+    }
+
+    private static byte readFlags(boolean oldRead, boolean newRead) {
+        return (byte) ((oldRead ? OLD_READ : 0) | (newRead ? NEW_READ : 0));
+    }
+
+    private void writeSpilled(long sequence, int slot) {
+        try {
+            spill.writeLong(sequence);
+            spill.writeLong(times[slot]);
+            spill.writeInt(bookIds[slot]);
+            spill.writeInt(oldRatings[slot]);
+            spill.writeInt(newRatings[slot]);
+            spill.writeByte(flags[slot]);
+            int record = spillPrevious.size();
+            spillPrevious.add(spillHeads.get(bookIds[slot]));
+            spillHeads.put(bookIds[slot], record);
+            lastSpilledSequence = sequence;
+            lastSpilledTime = times[slot];
+        } catch (IOException e) {
+            // Keep the library usable; the history simply loses its spilled tail.
+            System.out.println("Error writing the history spill file; spilling stopped.");
+            spill = null;
+        }
+    }
+
+    /**
+     * Starts undoing the most recent update. Changes recorded until {@link #endReplay()}
+     * are logged as undone rather than as new updates.
+     *
+     * @return the undo slot to read the update from, or -1 if there is nothing to undo
+     */
+    synchronized int beginUndo() {
+        if (undoCursor == undoFloor) {
+            return -1;
+        }
+        replaying = ChangeEvent.Kind.UNDONE;
+        return (int) (--undoCursor % undoDepth);
+    }
+
+    /**
+     * Starts redoing the most recently undone update. Changes recorded until
+     * {@link #endReplay()} are logged as redone.
+     *
+     * @return the undo slot to read the update from, or -1 if there is nothing to redo
+     */
+    synchronized int beginRedo() {
+        if (undoCursor == undoEnd) {
+            return -1;
+        }
+        replaying = ChangeEvent.Kind.REDONE;
+        return (int) (undoCursor++ % undoDepth);
+    }
+
+    synchronized void endReplay() {
+        replaying = null;
+    }
+
+    synchronized int undoBookId(int slot) {
+        return undoBookIds[slot];
+    }
+
+    synchronized int undoOldRating(int slot) {
+        return undoOldRatings[slot];
+    }
+
+    synchronized boolean undoOldRead(int slot) {
+        return (undoFlags[slot] & OLD_READ) != 0;
+    }
+
+    synchronized int undoNewRating(int slot) {
+        return undoNewRatings[slot];
+    }
+
+    synchronized boolean undoNewRead(int slot) {
+        return (undoFlags[slot] & NEW_READ) != 0;
+    }
+
+    /**
+     * Gets the events recorded for one book, oldest first: first those in the spill
+     * file, read by following the book's chain of records, then those still in memory.
+     *
+     * @param bookId the book's id
+     * @param books  looks up a book by id
+     * @return the book's events
+     * @throws IOException if the spill file cannot be read
+     */
+    synchronized List<ChangeEvent> history(int bookId, IntFunction<Book> books) throws IOException {
+        List<ChangeEvent> events = new ArrayList<>();
+        if (spillFile != null) {
+            if (spill != null) {
+                spill.flush();
+            }
+            try (RandomAccessFile in = new RandomAccessFile(spillFile, "r")) {
+                for (int record = spillHeads.get(bookId); record >= 0; record = spillPrevious.get(record)) {
+                    in.seek((long) record * SPILL_RECORD_BYTES);
+                    long sequence = in.readLong();
+                    long time = in.readLong();
+                    int id = in.readInt();
+                    int oldRating = in.readInt();
+                    int newRating = in.readInt();
+                    int bits = in.readByte();
+                    events.add(new ChangeEvent(sequence, time, KINDS[bits & KIND_MASK], books.apply(id),
+                            oldRating, (bits & OLD_READ) != 0, newRating, (bits & NEW_READ) != 0));
+                }
+            }
+            Collections.reverse(events);  // The chain runs newest first.
+        }
+        for (long sequence = Math.max(0, nextSequence - times.length); sequence < nextSequence; sequence++) {
+            if (bookIds[(int) (sequence & mask)] == bookId) {
+                events.add(event(sequence, books));
+            }
+        }
+        return events;
+    }
+
+    /**
+     * Gets the sequence number of the newest event that is no longer held, in memory
+     * or in the spill file. Histories are complete only for changes after it.
+     *
+     * @return the sequence number, or -1 if no event has been lost
+     */
+    synchronized long lostSequence() {
+        return lostSequence;
+    }
+
+    /**
+     * Gets the time of the newest event that is no longer held.
+     *
+     * @return the time in milliseconds since the epoch, or Long.MIN_VALUE if no event has been lost
+     */
+    synchronized long lostTime() {
+        return lostTime;
+    }
+
+    /**
+     * Gets the most recent events still in memory, oldest first.
+     *
+     * @param count the most events to return
+     * @param books looks up a book by id
+     * @return the events
+     */
+    synchronized List<ChangeEvent> recent(int count, IntFunction<Book> books) {
+        List<ChangeEvent> events = new ArrayList<>();
+        long first = Math.max(Math.max(0, nextSequence - times.length), nextSequence - count);
+        for (long sequence = first; sequence < nextSequence; sequence++) {
+            events.add(event(sequence, books));
+        }
+        return events;
+    }
+
+    private ChangeEvent event(long sequence, IntFunction<Book> books) {
+        int slot = (int) (sequence & mask);
+        int bits = flags[slot];
+        return new ChangeEvent(sequence, times[slot], KINDS[bits & KIND_MASK], books.apply(bookIds[slot]),
+                oldRatings[slot], (bits & OLD_READ) != 0, newRatings[slot], (bits & NEW_READ) != 0);
+    }
+}
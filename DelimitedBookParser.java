@@ -0,0 +1,209 @@
+import java.io.*;
+
+/**
+ * DelimitedBookParser reads separator-delimited records: RFC 4180 CSV when quoting is
+ * enabled, and tab- or semicolon-separated lines when it is not. Columns are title,
+ * author, and optionally rating and read status; further columns are ignored.
+ *
+ * In author-last mode (the original title;author format) a line is split at its last
+ * separator only, so a title may contain the separator itself.
+ *
+ * Characters are read through the parser's own buffer and fields are collected in
+ * builders reused from record to record.
+ */
+class DelimitedBookParser implements BookParser {
+    private static final int COLUMNS = 4;
+
+    private final Reader in;
+    private final char separator;
+    private final boolean quoted;
+    private final boolean authorLast;
+    private final char[] buffer = new char[8192];
+    private int position;
+    private int limit;
+    private boolean skipLineFeed;
+    private final StringBuilder[] fields = new StringBuilder[COLUMNS + 1];
+    private int lastSeparator;
+    private int skipped;
+
+    /**
+     * Creates a parser over the given stream.
+     *
+     * @param in        the stream to read, positioned at the first record
+     * @param separator the field separator
+     * @param quoted    true to honour RFC 4180 double-quoted fields
+     */
+    DelimitedBookParser(Reader in, char separator, boolean quoted) {
+        this.in = in;
+        this.separator = separator;
+        this.quoted = quoted;
+        this.authorLast = separator == ';' && !quoted;
+        for (int i = 0; i < fields.length; i++) {
+            fields[i] = new StringBuilder();
+        }
+    }
+
+    @Override
+    public boolean next(BookRecord record) throws IOException {
+        while (true) {
+            int count = authorLast ? readLine() : readFields();
+            if (count < 0) {
+                return false;
+            }
+            if (count == 1 && fields[0].length() == 0) {
+                continue;  // Blank line.
+            }
+            record.clear();
+            if (authorLast ? fillSplitAtLast(record) : fill(record, count)) {
+                return true;
+            }
+            skipped++;
+        }
+    }
+
+    @Override
+    public int getSkippedCount() {
+        return skipped;
+    }
+
+    /**
+     * Reads one line into the first field, remembering where its last separator is.
+     *
+     * @return 1, or -1 at the end of the input
+     */
+    private int readLine() throws IOException {
+        StringBuilder line = fields[0];
+        line.setLength(0);
+        lastSeparator = -1;
+        int c = read();
+        if (c < 0) {
+            return -1;
+        }
+        while (c >= 0 && c != '\n' && c != '\r') {
+            if (c == separator) {
+                lastSeparator = line.length();
+            }
+            line.append((char) c);
+            c = read();
+        }
+        skipLineFeed = c == '\r';
+        return 1;
+    }
+
+    /**
+     * Reads one record into the field builders, handling quoted fields if enabled.
+     *
+     * @return the number of fields in the record, or -1 at the end of the input
+     */
+    private int readFields() throws IOException {
+        int count = 0;
+        StringBuilder field = fields[0];
+        field.setLength(0);
+        boolean inQuotes = false;
+        int c = read();
+        if (c < 0) {
+            return -1;
+        }
+        while (true) {
+            if (inQuotes) {
+                if (c < 0) {
+                    break;  // Unterminated quote: take what there is.
+                }
+                if (c == '"') {
+                    c = read();
+                    if (c != '"') {
+                        inQuotes = false;
+                        continue;
+                    }
+                }
+                field.append((char) c);
+            } else if (c < 0 || c == '\n' || c == '\r') {
+                skipLineFeed = c == '\r';
+                break;
+            } else if (c == separator) {
+                count++;
+                field = fields[Math.min(count, COLUMNS)];
+                field.setLength(0);
+            } else if (c == '"' && quoted && field.length() == 0) {
+                inQuotes = true;
+            } else {
+                field.append((char) c);
+            }
+            c = read();
+        }
+        return Math.min(count + 1, COLUMNS);
+    }
+
+    private boolean fill(BookRecord record, int count) {
+        if (count < 2 || fields[0].length() == 0) {
+            return false;
+        }
+        record.title.append(fields[0]);
+        record.author.append(fields[1]);
+        if (count > 2 && fields[2].length() > 0) {
+            int rating = parseRating(fields[2]);
+            if (rating < 0) {
+                return false;
+            }
+            record.rating = rating;
+        }
+        if (count > 3) {
+            record.read = parseRead(fields[3]);
+        }
+        return true;
+    }
+
+    private boolean fillSplitAtLast(BookRecord record) {
+        StringBuilder line = fields[0];
+        if (lastSeparator <= 0) {
+            return false;
+        }
+        record.title.append(line, 0, lastSeparator);
+        record.author.append(line, lastSeparator + 1, line.length());
+        return true;
+    }
+
+    /**
+     * Parses a non-negative rating without allocating.
+     *
+     * @return the rating, or -1 if the field is not a number
+     */
+    static int parseRating(CharSequence text) {
+        int value = 0;
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9' || value > 100_000) {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return length == 0 ? -1 : value;
+    }
+
+    static boolean parseRead(CharSequence text) {
+        String value = text.toString().trim();
+        return value.equalsIgnoreCase("true") || value.equals("1") || value.equalsIgnoreCase("read");
+    }
+
+    private int read() throws IOException {
+        while (true) {
+            if (position == limit) {
+                limit = in.read(buffer, 0, buffer.length);
+                position = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    return -1;
+                }
+            }
+            char c = buffer[position++];
+            if (skipLineFeed) {
+                skipLineFeed = false;
+                if (c == '\n') {
+                    continue;
+                }
+            }
+            return c;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.zip.CRC32;
+
+/**
+ * ImportCursor remembers how far a catalog file has been ingested, so that a later
+ * import can pick up only the lines appended since. Besides the byte offset it keeps
+ * the file identity and a checksum of the already-read prefix; if either no longer
+ * matches (the file was replaced, rotated or rewritten) the cursor starts over.
+ */
+class ImportCursor {
+    private static final int FINGERPRINT_BYTES = 4096;
+
+    private long offset;
+    private long fingerprint;
+    private Object fileKey;
+    private BookFormat format;
+
+    /**
+     * Gets the byte offset just past the last complete line ingested.
+     *
+     * @return the ingested byte count
+     */
+    long getOffset() {
+        return offset;
+    }
+
+    /**
+     * Gets the format detected when the file was first read.
+     *
+     * @return the file's format, or null if nothing has been read yet
+     */
+    BookFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * Records the format detected from the start of the file.
+     *
+     * @param format the file's format
+     */
+    void setFormat(BookFormat format) {
+        this.format = format;
+    }
+
+    /**
+     * Checks the file against the stored identity and resets the cursor to the
+     * start of the file if it is no longer the file that was read before.
+     *
+     * @param channel an open channel on the file
+     * @param path    the path of the file
+     * @throws IOException if the file cannot be read
+     */
+    void validate(FileChannel channel, Path path) throws IOException {
+        Object key = Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+        boolean replaced = key != null && fileKey != null && !key.equals(fileKey);
+        if (replaced || channel.size() < offset || fingerprint(channel, offset) != fingerprint) {
+            offset = 0;
+            format = null;
+            fingerprint = fingerprint(channel, 0);
+        }
+        fileKey = key;
+    }
+
+    /**
+     * Moves the cursor past newly ingested bytes.
+     *
+     * @param channel   an open channel on the file
+     * @param newOffset the offset just past the last complete line read
+     * @throws IOException if the file cannot be read
+     */
+    void advance(FileChannel channel, long newOffset) throws IOException {
+        boolean prefixGrew = offset < FINGERPRINT_BYTES;
+        offset = newOffset;
+        if (prefixGrew) {
+            fingerprint = fingerprint(channel, offset);
+        }
+    }
+
+    /**
+     * Finds the end of the last complete line in the file, so that a line the writer
+     * is still appending to is left for later. Scans backwards from the end of the file.
+     *
+     * @param channel an open channel on the file
+     * @return the offset just past the last newline, or the current offset if no
+     *         complete line has been appended
+     * @throws IOException if the file cannot be read
+     */
+    long findLastLineEnd(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        long end = channel.size();
+        while (end > offset) {
+            int length = (int) Math.min(buffer.capacity(), end - offset);
+            buffer.clear().limit(length);
+            long start = end - length;
+            while (buffer.hasRemaining() && channel.read(buffer, start + buffer.position()) > 0) {
+                // keep reading until the block is filled
+            }
+            for (int i = buffer.position() - 1; i >= 0; i--) {
+                if (buffer.get(i) == '\n') {
+                    return start + i + 1;
+                }
+            }
+            end = start;
+        }
+        return offset;
+    }
+
+    /**
+     * Opens a stream over the bytes from the cursor's offset up to the given end,
+     * without moving the channel's own position.
+     *
+     * @param channel an open channel on the file
+     * @param end     the offset to stop reading at
+     * @return a stream over the unread bytes
+     */
+    InputStream openDelta(FileChannel channel, long end) {
+        return new InputStream() {
+            private long position = offset;
+
+            @Override
+            public int read() throws IOException {
+                byte[] one = new byte[1];
+                return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+            }
+
+            @Override
+            public int read(byte[] bytes, int off, int len) throws IOException {
+                if (position >= end) {
+                    return -1;
+                }
+                int count = channel.read(ByteBuffer.wrap(bytes, off, (int) Math.min(len, end - position)), position);
+                if (count > 0) {
+                    position += count;
+                }
+                return count;
+            }
+        };
+    }
+
+    /**
+     * Checksums the first bytes of the file, up to the given offset.
+     */
+    private static long fingerprint(FileChannel channel, long upTo) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(upTo, FINGERPRINT_BYTES));
+        while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) > 0) {
+            // keep reading until the prefix is filled
+        }
+        buffer.flip();
+        CRC32 crc = new CRC32();
+        crc.update(buffer);
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,81 @@
+import java.util.Arrays;
+
+/**
+ * IntArrayList is a growable array of primitive ints, used by the library's indexes
+ * instead of a {@code List<Integer>} so that postings take four bytes each and no
+ * boxes.
+ */
+class IntArrayList {
+    private int[] values;
+    private int size;
+
+    /**
+     * Creates an empty list.
+     */
+    IntArrayList() {
+        this(16);
+    }
+
+    /**
+     * Creates an empty list with room for the given number of values.
+     *
+     * @param capacity the initial capacity
+     */
+    IntArrayList(int capacity) {
+        values = new int[Math.max(capacity, 1)];
+    }
+
+    /**
+     * Appends a value.
+     *
+     * @param value the value to append
+     */
+    void add(int value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, values.length * 2);
+        }
+        values[size++] = value;
+    }
+
+    /**
+     * Gets the value at an index.
+     *
+     * @param index the index, less than {@link #size()}
+     * @return the value
+     */
+    int get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+        return values[index];
+    }
+
+    /**
+     * Replaces the value at an index.
+     *
+     * @param index the index, less than {@link #size()}
+     * @param value the new value
+     */
+    void set(int index, int value) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+        values[index] = value;
+    }
+
+    /**
+     * Gets the number of values.
+     *
+     * @return the size of the list
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Removes every value, keeping the allocated capacity.
+     */
+    void clear() {
+        size = 0;
+    }
+}
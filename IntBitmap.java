@@ -0,0 +1,121 @@
+import java.util.Arrays;
+
+/**
+ * IntBitmap is a set of small non-negative ints stored one bit each in an array of
+ * longs. The library assigns dense ids to its books, so a bitmap over them takes an
+ * eighth of a byte per book, and intersecting two filters is a word-by-word AND.
+ */
+class IntBitmap {
+    private long[] words;
+
+    /**
+     * Creates an empty bitmap.
+     */
+    IntBitmap() {
+        words = new long[1];
+    }
+
+    private IntBitmap(long[] words) {
+        this.words = words;
+    }
+
+    /**
+     * Adds an id to the set.
+     *
+     * @param id the id to add
+     */
+    void set(int id) {
+        int word = id >>> 6;
+        if (word >= words.length) {
+            words = Arrays.copyOf(words, Math.max(word + 1, words.length * 2));
+        }
+        words[word] |= 1L << id;
+    }
+
+    /**
+     * Removes an id from the set.
+     *
+     * @param id the id to remove
+     */
+    void clear(int id) {
+        int word = id >>> 6;
+        if (word < words.length) {
+            words[word] &= ~(1L << id);
+        }
+    }
+
+    /**
+     * Checks whether an id is in the set.
+     *
+     * @param id the id to check
+     * @return true if the id is set
+     */
+    boolean get(int id) {
+        int word = id >>> 6;
+        return word < words.length && (words[word] & (1L << id)) != 0;
+    }
+
+    /**
+     * Finds the next id in the set.
+     *
+     * @param from the first id to consider
+     * @return the smallest set id at or after from, or -1 if there is none
+     */
+    int nextSetBit(int from) {
+        int word = from >>> 6;
+        if (word >= words.length) {
+            return -1;
+        }
+        long bits = words[word] & (-1L << from);
+        while (true) {
+            if (bits != 0) {
+                return (word << 6) + Long.numberOfTrailingZeros(bits);
+            }
+            if (++word == words.length) {
+                return -1;
+            }
+            bits = words[word];
+        }
+    }
+
+    /**
+     * Counts the ids in the set.
+     *
+     * @return the number of set ids
+     */
+    int cardinality() {
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * Intersects this set with another.
+     *
+     * @param other the other set
+     * @return a new set of the ids in both sets
+     */
+    IntBitmap and(IntBitmap other) {
+        long[] result = new long[Math.min(words.length, other.words.length)];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = words[i] & other.words[i];
+        }
+        return new IntBitmap(result);
+    }
+
+    /**
+     * Subtracts another set from this one.
+     *
+     * @param other the set to subtract
+     * @return a new set of the ids in this set but not the other
+     */
+    IntBitmap andNot(IntBitmap other) {
+        long[] result = words.clone();
+        for (int i = 0; i < Math.min(result.length, other.words.length); i++) {
+            result[i] &= ~other.words[i];
+        }
+        return new IntBitmap(result);
+    }
+}
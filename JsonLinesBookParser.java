@@ -0,0 +1,220 @@
+import java.io.*;
+
+/**
+ * JsonLinesBookParser reads JSON Lines: one flat object per line, for example
+ * <pre>{"title":"Dune","author":"Frank Herbert","rating":5,"read":true}</pre>
+ * Only "title" and "author" are required; unknown keys, including nested objects and
+ * arrays, are skipped. The line, key and value buffers are reused for every record.
+ */
+class JsonLinesBookParser implements BookParser {
+    private final BufferedReader in;
+    private final StringBuilder line = new StringBuilder();
+    private final StringBuilder key = new StringBuilder();
+    private final StringBuilder value = new StringBuilder();
+    private int position;
+    private int skipped;
+
+    /**
+     * Creates a parser over the given stream.
+     *
+     * @param in the stream to read, positioned at the first record
+     */
+    JsonLinesBookParser(Reader in) {
+        this.in = in instanceof BufferedReader ? (BufferedReader) in : new BufferedReader(in);
+    }
+
+    @Override
+    public boolean next(BookRecord record) throws IOException {
+        while (readLine()) {
+            position = 0;
+            skipWhitespace();
+            if (position == line.length()) {
+                continue;  // Blank line.
+            }
+            record.clear();
+            if (parseObject(record) && record.title.length() > 0 && record.author.length() > 0) {
+                return true;
+            }
+            skipped++;
+        }
+        return false;
+    }
+
+    @Override
+    public int getSkippedCount() {
+        return skipped;
+    }
+
+    private boolean readLine() throws IOException {
+        line.setLength(0);
+        int c = in.read();
+        if (c < 0) {
+            return false;
+        }
+        while (c >= 0 && c != '\n') {
+            if (c != '\r') {
+                line.append((char) c);
+            }
+            c = in.read();
+        }
+        return true;
+    }
+
+    private boolean parseObject(BookRecord record) {
+        if (!consume('{')) {
+            return false;
+        }
+        skipWhitespace();
+        if (consume('}')) {
+            return true;
+        }
+        do {
+            skipWhitespace();
+            if (!parseString(key)) {
+                return false;
+            }
+            skipWhitespace();
+            if (!consume(':')) {
+                return false;
+            }
+            skipWhitespace();
+            if (!parseField(record)) {
+                return false;
+            }
+            skipWhitespace();
+        } while (consume(','));
+        return consume('}');
+    }
+
+    private boolean parseField(BookRecord record) {
+        if ("title".contentEquals(key)) {
+            return parseString(record.title);
+        }
+        if ("author".contentEquals(key)) {
+            return parseString(record.author);
+        }
+        if ("rating".contentEquals(key)) {
+            if (!parseScalar()) {
+                return false;
+            }
+            int rating = DelimitedBookParser.parseRating(value);
+            record.rating = Math.max(rating, 0);
+            return rating >= 0 || "null".contentEquals(value);
+        }
+        if ("read".contentEquals(key)) {
+            if (!parseScalar()) {
+                return false;
+            }
+            record.read = "true".contentEquals(value);
+            return true;
+        }
+        return skipValue();
+    }
+
+    /**
+     * Parses a JSON string at the current position into the given builder.
+     */
+    private boolean parseString(StringBuilder out) {
+        out.setLength(0);
+        if (!consume('"')) {
+            return false;
+        }
+        while (position < line.length()) {
+            char c = line.charAt(position++);
+            if (c == '"') {
+                return true;
+            }
+            if (c != '\\') {
+                out.append(c);
+                continue;
+            }
+            if (position == line.length()) {
+                return false;
+            }
+            char escape = line.charAt(position++);
+            switch (escape) {
+                case 'b': out.append('\b'); break;
+                case 'f': out.append('\f'); break;
+                case 'n': out.append('\n'); break;
+                case 'r': out.append('\r'); break;
+                case 't': out.append('\t'); break;
+                case 'u':
+                    if (position + 4 > line.length()) {
+                        return false;
+                    }
+                    int code = 0;
+                    for (int i = 0; i < 4; i++) {
+                        int digit = Character.digit(line.charAt(position++), 16);
+                        if (digit < 0) {
+                            return false;
+                        }
+                        code = code * 16 + digit;
+                    }
+                    out.append((char) code);
+                    break;
+                default:
+                    out.append(escape);  // \" \\ \/
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reads a number, boolean or null literal into the value buffer.
+     */
+    private boolean parseScalar() {
+        value.setLength(0);
+        while (position < line.length()) {
+            char c = line.charAt(position);
+            if (c == ',' || c == '}' || Character.isWhitespace(c)) {
+                break;
+            }
+            value.append(c);
+            position++;
+        }
+        return value.length() > 0;
+    }
+
+    /**
+     * Skips over any JSON value, including nested objects and arrays.
+     */
+    private boolean skipValue() {
+        if (position < line.length() && line.charAt(position) == '"') {
+            return parseString(value);
+        }
+        if (position < line.length() && (line.charAt(position) == '{' || line.charAt(position) == '[')) {
+            int depth = 0;
+            while (position < line.length()) {
+                char c = line.charAt(position);
+                if (c == '"') {
+                    if (!parseString(value)) {
+                        return false;
+                    }
+                    continue;
+                }
+                position++;
+                if (c == '{' || c == '[') {
+                    depth++;
+                } else if ((c == '}' || c == ']') && --depth == 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return parseScalar();
+    }
+
+    private boolean consume(char expected) {
+        if (position < line.length() && line.charAt(position) == expected) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private void skipWhitespace() {
+        while (position < line.length() && Character.isWhitespace(line.charAt(position))) {
+            position++;
+        }
+    }
+}
@@ -11,15 +11,52 @@
 
 import java.util.*;
 import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.concurrent.Flow;
 
 public class Library {
-    private List<Book> books;
+    private static final java.util.regex.Pattern WHITESPACE = java.util.regex.Pattern.compile("\\s+");
+    static final Comparator<AuthorStats> AUTHOR_STATS_ORDER =
+            Comparator.comparingInt(AuthorStats::getBookCount).reversed().thenComparing(AuthorStats::getAuthor);
+
+    private List<Book> books;  // A book's index in this list is its id.
+    private final PostingIndex titleIndex = new PostingIndex();
+    private final PostingIndex authorIndex = new PostingIndex();
+    private final IntBitmap readIds = new IntBitmap();
+    private final IntIntHashMap ratingSlots = new IntIntHashMap(-1);  // Rating -> index into ratingIds.
+    private final List<IntBitmap> ratingIds = new ArrayList<>();
+    private final LibraryAggregates aggregates = new LibraryAggregates();
+    private Map<String, Book> dedupIndex;  // null unless deduplication is enabled
+    private int duplicatesCollapsed;
+    private Map<String, ImportCursor> importCursors = new HashMap<>();
+    private QueryCache queryCache;  // null unless the query cache is enabled
+    private final List<LibraryListener> listeners = new ArrayList<>();
+    private LibraryChangePublisher changePublisher;  // Created when first asked for.
+    private final OperationTracer tracer = new OperationTracer();
+    private final ChangeLog history;
+    private final int historyIdStride;  // History ids are id * stride + offset, so shards
+    private final int historyIdOffset;  // sharing one log never reuse each other's ids.
 
     /**
       Constructor that initializes an empty list of books.
     */
     public Library() {
+        this(new ChangeLog(ChangeLog.DEFAULT_CAPACITY, ChangeLog.DEFAULT_UNDO_DEPTH), 1, 0);
+    }
+
+    /**
+      Creates an empty library that records its changes in the given log.
+      @param history The change log, possibly shared with other shards.
+      @param historyIdStride The number of libraries sharing the log.
+      @param historyIdOffset This library's position among them.
+    */
+    Library(ChangeLog history, int historyIdStride, int historyIdOffset) {
         books = new ArrayList<>();
+        this.history = history;
+        this.historyIdStride = historyIdStride;
+        this.historyIdOffset = historyIdOffset;
     }
 
     /**
@@ -27,7 +64,563 @@ public class Library {
       @param book The book to be added.
     */
     public void addBook(Book book) {
+        long start = tracer.start();
+        boolean added = insert(book);
+        if (added) {
+            notifyAdded(book);
+        }
+        tracer.record(OperationTracer.Operation.ADD_BOOK, start, added ? 1 : 0);
+    }
+
+    /**
+      Adds a book without telling the listeners, so that a sharded library can add
+      to its shards in parallel and then notify from the calling thread.
+      @param book The book to be added.
+      @return True if the book was added, false if it was collapsed into a duplicate.
+    */
+    boolean insert(Book book) {
+        if (dedupIndex != null) {
+            Book existing = dedupIndex.putIfAbsent(dedupKey(book), book);
+            if (existing != null) {
+                mergeDuplicate(existing, book);
+                duplicatesCollapsed++;
+                return false;
+            }
+        }
+        int id = books.size();
         books.add(book);
+        titleIndex.add(BookKeys.hash(book.getTitleKey()), id);
+        authorIndex.add(BookKeys.hash(book.getAuthorKey()), id);
+        ratingBitmap(book.getRating()).set(id);
+        if (book.isRead()) {
+            readIds.set(id);
+        }
+        aggregates.bookAdded(id, book);
+        history.recordAdded(id * historyIdStride + historyIdOffset, book.getRating(), book.isRead());
+        if (queryCache != null) {
+            queryCache.invalidate(QueryCache.Kind.TITLE, book.getTitleKey());
+            queryCache.invalidate(QueryCache.Kind.AUTHOR, book.getAuthorKey());
+            queryCache.invalidate(QueryCache.Kind.RATING, Integer.toString(book.getRating()));
+            queryCache.invalidateAll(QueryCache.Kind.SORTED_BY_TITLE);
+            queryCache.invalidateAll(QueryCache.Kind.SORTED_BY_AUTHOR);
+        }
+        return true;
+    }
+
+    /**
+      Tells the listeners that a book was added.
+      @param book A book just added by {@link #insert(Book)}.
+    */
+    void notifyAdded(Book book) {
+        for (LibraryListener listener : listeners) {
+            listener.bookAdded(book);
+        }
+    }
+
+    /**
+      Gets the latency tracer that times every operation that reads, adds or
+      changes books, and the history queries.
+      @return The tracer, for percentile reports and the slow-operation log.
+    */
+    public OperationTracer getTracer() {
+        return tracer;
+    }
+
+    /**
+      Sets a specific book's rating and read status, keeping the query cache
+      consistent and notifying listeners. All rating and read changes go through here.
+      @param book A book in this library.
+      @param rating The new rating.
+      @param read The new read status.
+    */
+    void updateBook(Book book, int rating, boolean read) {
+        int oldRating = book.getRating();
+        boolean oldRead = book.isRead();
+        if (oldRating == rating && oldRead == read) {
+            return;
+        }
+        invalidateRating(oldRating, rating);
+        int id = idOf(book);
+        if (id >= 0) {
+            ratingBitmap(oldRating).clear(id);
+            ratingBitmap(rating).set(id);
+            if (read) {
+                readIds.set(id);
+            } else {
+                readIds.clear(id);
+            }
+            aggregates.bookUpdated(id, oldRating, oldRead, rating, read);
+            history.recordUpdated(id * historyIdStride + historyIdOffset, oldRating, oldRead, rating, read);
+        }
+        book.setRating(rating);
+        book.setRead(read);
+        for (LibraryListener listener : listeners) {
+            listener.bookUpdated(book, oldRating, oldRead);
+        }
+    }
+
+    /**
+      Gets the number of books in the library.
+      @return The book count.
+    */
+    public int getBookCount() {
+        return books.size();
+    }
+
+    /**
+      Gets the number of books that have been read.
+      @return The read count.
+    */
+    public int getReadCount() {
+        return aggregates.getReadCount();
+    }
+
+    /**
+      Gets the share of the library's books that have been read.
+      @return The read ratio between 0 and 1, or 0 for an empty library.
+    */
+    public double getReadRatio() {
+        int total = getBookCount();
+        return total == 0 ? 0 : (double) getReadCount() / total;
+    }
+
+    /**
+      Gets how many books have each rating. Ratings no book has are left out.
+      @return Book counts keyed by rating, in ascending rating order.
+    */
+    public SortedMap<Integer, Integer> getRatingDistribution() {
+        return aggregates.ratingDistribution();
+    }
+
+    /**
+      Gets the average rating of all rated books; books rated 0 count as unrated.
+      Computed from the rating distribution, so it costs one step per distinct rating.
+      @return The average rating, or 0 if no book is rated.
+    */
+    public double getAverageRating() {
+        long sum = 0;
+        int rated = 0;
+        for (Map.Entry<Integer, Integer> entry : getRatingDistribution().entrySet()) {
+            if (entry.getKey() > 0) {
+                sum += (long) entry.getKey() * entry.getValue();
+                rated += entry.getValue();
+            }
+        }
+        return rated == 0 ? 0 : (double) sum / rated;
+    }
+
+    /**
+      Gets one author's book count, read count and average rating in constant time.
+      @param author The author to look up, in any case.
+      @return The author's statistics, or null if there are no books by them.
+    */
+    public AuthorStats getAuthorStats(String author) {
+        return aggregates.authorStats(author);
+    }
+
+    /**
+      Gets the statistics of every author, most books first and then by name.
+      @return One entry per author.
+    */
+    public List<AuthorStats> getAuthorStats() {
+        List<AuthorStats> stats = aggregates.authorStats();
+        stats.sort(AUTHOR_STATS_ORDER);
+        return stats;
+    }
+
+    /**
+      Formats the library's statistics as plain text for the CLI and GUI.
+      @param maxAuthors The most authors to list, those with the most books first.
+      @return A multi-line report.
+    */
+    String statsReport(int maxAuthors) {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("Books: %d, read: %d (%.1f%%), average rating: %.2f%n",
+                getBookCount(), getReadCount(), getReadRatio() * 100, getAverageRating()));
+        report.append("Rating distribution:\n");
+        for (Map.Entry<Integer, Integer> entry : getRatingDistribution().entrySet()) {
+            report.append(String.format("  %3d: %d%n", entry.getKey(), entry.getValue()));
+        }
+        List<AuthorStats> authors = getAuthorStats();
+        report.append("Authors (").append(authors.size()).append("):\n");
+        for (int i = 0; i < authors.size() && i < maxAuthors; i++) {
+            report.append("  ").append(authors.get(i)).append('\n');
+        }
+        return report.toString();
+    }
+
+    /**
+      Undoes the most recent rating or read change that has not been undone yet.
+      Adding books cannot be undone.
+      @return True if a change was undone, false if there was nothing to undo.
+    */
+    public boolean undo() {
+        long start = tracer.start();
+        int slot = history.beginUndo();
+        if (slot >= 0) {
+            try {
+                updateBook(bookAt(history.undoBookId(slot)), history.undoOldRating(slot), history.undoOldRead(slot));
+            } finally {
+                history.endReplay();
+            }
+        }
+        tracer.record(OperationTracer.Operation.UNDO, start, slot >= 0 ? 1 : 0);
+        return slot >= 0;
+    }
+
+    /**
+      Re-applies the most recently undone change. Any new change made after an undo
+      discards the changes that could have been redone.
+      @return True if a change was redone, false if there was nothing to redo.
+    */
+    public boolean redo() {
+        long start = tracer.start();
+        int slot = history.beginRedo();
+        if (slot >= 0) {
+            try {
+                updateBook(bookAt(history.undoBookId(slot)), history.undoNewRating(slot), history.undoNewRead(slot));
+            } finally {
+                history.endReplay();
+            }
+        }
+        tracer.record(OperationTracer.Operation.REDO, start, slot >= 0 ? 1 : 0);
+        return slot >= 0;
+    }
+
+    /**
+      Gets the recorded history of every book with the given title, oldest first.
+      @param title The title to look up.
+      @return The books' events; empty if there is no such book.
+      @throws IOException If the history spill file cannot be read.
+    */
+    public List<ChangeEvent> getHistory(String title) throws IOException {
+        long start = tracer.start();
+        List<ChangeEvent> events = new ArrayList<>();
+        for (Book book : searchByTitle(title)) {
+            events.addAll(history.history(historyId(book), this::bookAt));
+        }
+        events.sort(Comparator.comparingLong(ChangeEvent::getSequence));
+        tracer.record(OperationTracer.Operation.HISTORY, start, events.size());
+        return events;
+    }
+
+    /**
+      Gets the most recent changes to any book, oldest first.
+      @param count The most changes to return.
+      @return The changes still held in memory, up to count of them.
+    */
+    public List<ChangeEvent> getRecentChanges(int count) {
+        long start = tracer.start();
+        List<ChangeEvent> events = history.recent(count, this::bookAt);
+        tracer.record(OperationTracer.Operation.RECENT_CHANGES, start, events.size());
+        return events;
+    }
+
+    /**
+      Reconstructs a book as it was at a point in time, by rolling its current
+      state back through the changes made after that time.
+      @param title The title of the book; the first match is used.
+      @param timeMillis The point in time, in milliseconds since the epoch.
+      @return A detached copy with the rating and read status it had then, or
+      null if there is no such book, it had not been added yet, or the history
+      no longer reaches back that far.
+      @throws IOException If the history spill file cannot be read.
+    */
+    public Book getBookAsOf(String title, long timeMillis) throws IOException {
+        long start = tracer.start();
+        Book book = rollBack(title, false, timeMillis);
+        tracer.record(OperationTracer.Operation.BOOK_AS_OF, start, book != null ? 1 : 0);
+        return book;
+    }
+
+    /**
+      Reconstructs a book as it was just after a given change, by rolling its
+      current state back through the changes with a higher sequence number.
+      @param title The title of the book; the first match is used.
+      @param sequence The sequence number of the last change to keep.
+      @return A detached copy with the rating and read status it had then, or
+      null if there is no such book, it had not been added yet, or the history
+      no longer reaches back that far.
+      @throws IOException If the history spill file cannot be read.
+    */
+    public Book getBookAsOfSequence(String title, long sequence) throws IOException {
+        long start = tracer.start();
+        Book book = rollBack(title, true, sequence);
+        tracer.record(OperationTracer.Operation.BOOK_AS_OF, start, book != null ? 1 : 0);
+        return book;
+    }
+
+    private Book rollBack(String title, boolean bySequence, long point) throws IOException {
+        List<Book> matches = searchByTitle(title);
+        if (matches.isEmpty()) {
+            return null;
+        }
+        Book book = matches.get(0);
+        int rating = book.getRating();
+        boolean read = book.isRead();
+        List<ChangeEvent> events = history.history(historyId(book), this::bookAt);
+        int i = events.size() - 1;
+        for (; i >= 0 && (bySequence ? events.get(i).getSequence() : events.get(i).getTimeMillis()) > point; i--) {
+            if (events.get(i).getKind() == ChangeEvent.Kind.ADDED) {
+                return null;
+            }
+            rating = events.get(i).getOldRating();
+            read = events.get(i).getOldRead();
+        }
+        // Past the oldest event held, a lost event after the point may have changed the book.
+        if (i < 0 && (bySequence ? history.lostSequence() : history.lostTime()) > point) {
+            return null;
+        }
+        Book copy = new Book(book.getTitle(), book.getAuthor(), rating);
+        copy.setRead(read);
+        return copy;
+    }
+
+    /**
+      Keeps the full change history by appending events that no longer fit in
+      memory to a file. The file is replaced.
+      @param filename The spill file.
+      @throws IOException If the file cannot be created.
+    */
+    public void spillHistoryTo(String filename) throws IOException {
+        history.spillTo(new File(filename));
+    }
+
+    /**
+      Flushes and closes the history spill file, if any, so no spilled change is
+      lost at exit. Changes already spilled stay queryable.
+      @throws IOException If the file cannot be written.
+    */
+    public void closeHistory() throws IOException {
+        history.close();
+    }
+
+    /**
+      Turns undo recording on or off. Changes made while it is off are kept in
+      the history but cannot be undone, so a user cannot undo changes that were
+      applied from another process.
+      @param recording False to stop recording undo entries.
+    */
+    void setRecordingUndo(boolean recording) {
+        history.setRecordingUndo(recording);
+    }
+
+    /**
+      Gets the change log, so that shards can share their owner's.
+    */
+    ChangeLog changeLog() {
+        return history;
+    }
+
+    /**
+      Gets the id a book is recorded under in the change log.
+      @param book A book in this library.
+      @return Its history id, or -1 if it is not in this library.
+    */
+    int historyId(Book book) {
+        int id = idOf(book);
+        return id < 0 ? -1 : id * historyIdStride + historyIdOffset;
+    }
+
+    /**
+      Gets a book by the id it is recorded under in the change log.
+      @param historyId A history id handed out by this library.
+      @return The book.
+    */
+    Book bookAt(int historyId) {
+        return books.get((historyId - historyIdOffset) / historyIdStride);
+    }
+
+    /**
+      Finds the id of a book in this library by walking its title's posting chain.
+      @param book The book to look for.
+      @return The book's id, or -1 if it is not in this library.
+    */
+    private int idOf(Book book) {
+        for (int id = titleIndex.first(BookKeys.hash(book.getTitleKey())); id >= 0; id = titleIndex.next(id)) {
+            if (books.get(id) == book) {
+                return id;
+            }
+        }
+        return -1;
+    }
+
+    /**
+      Gets the bitmap of the ids of the books with a rating, creating it if needed.
+    */
+    private IntBitmap ratingBitmap(int rating) {
+        int slot = ratingSlots.get(rating);
+        if (slot < 0) {
+            slot = ratingIds.size();
+            ratingSlots.put(rating, slot);
+            ratingIds.add(new IntBitmap());
+        }
+        return ratingIds.get(slot);
+    }
+
+    /**
+      Registers a listener to be told about every later change.
+      @param listener The listener to add.
+    */
+    void addListener(LibraryListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+      Gets the stream of changes to this library: books being added, rated and
+      marked read or unread. Changes arrive in batches, with bursts such as bulk
+      imports coalesced, on a thread other than the one making the change. Only
+      changes made while a subscriber is attached are published.
+      @return The publisher of change batches.
+    */
+    public Flow.Publisher<List<LibraryChange>> changes() {
+        if (changePublisher == null) {
+            changePublisher = new LibraryChangePublisher();
+            addListener(changePublisher);
+        }
+        return changePublisher.publisher();
+    }
+
+    /**
+      Publishes any pending changes without waiting for the batch delay.
+    */
+    void flushChanges() {
+        if (changePublisher != null) {
+            changePublisher.flush();
+        }
+    }
+
+    /**
+      Unregisters a listener.
+      @param listener The listener to remove.
+    */
+    void removeListener(LibraryListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+      Turns on a bounded cache in front of the searches and sorted listings. Writes
+      invalidate only the entries they affect: adding a book drops the searches for
+      its title, author and rating plus the sorted listings, rating a book drops the
+      searches for its old and new rating, and marking a book as read changes no
+      cached result at all. Any previously cached results are discarded.
+      @param maxEntries The most results to cache before evicting the least recently used.
+      @param ttlMillis How long a result stays valid in milliseconds, or 0 for no limit.
+    */
+    public void enableQueryCache(int maxEntries, long ttlMillis) {
+        queryCache = new QueryCache(maxEntries, ttlMillis);
+    }
+
+    /**
+      Turns off the query cache and discards its contents.
+    */
+    public void disableQueryCache() {
+        queryCache = null;
+    }
+
+    /**
+      Gets the query cache, for its hit and miss statistics.
+      @return The query cache, or null if it is not enabled.
+    */
+    public QueryCache getQueryCache() {
+        return queryCache;
+    }
+
+    /**
+      Answers a query from the cache if it is enabled, computing and caching it on a miss.
+      The caller always gets its own copy of the result.
+    */
+    private List<Book> cached(QueryCache.Kind kind, String key, java.util.function.Supplier<List<Book>> query) {
+        if (queryCache == null) {
+            return query.get();
+        }
+        List<Book> result = queryCache.get(kind, key);
+        if (result == null) {
+            result = query.get();
+            queryCache.put(kind, key, new ArrayList<>(result));
+            return result;
+        }
+        return new ArrayList<>(result);
+    }
+
+    private void invalidateRating(int oldRating, int newRating) {
+        if (queryCache != null && oldRating != newRating) {
+            queryCache.invalidate(QueryCache.Kind.RATING, Integer.toString(oldRating));
+            queryCache.invalidate(QueryCache.Kind.RATING, Integer.toString(newRating));
+        }
+    }
+
+    /**
+      Turns duplicate detection on or off. While enabled, a book whose normalized
+      title and author match a book already in the library is not added again;
+      its rating and read status are merged into the existing copy instead.
+      Enabling indexes the books already present, collapsing nothing retroactively.
+      @param enabled true to skip duplicates on add and import.
+    */
+    public void setDeduplicate(boolean enabled) {
+        if (!enabled) {
+            dedupIndex = null;
+            return;
+        }
+        if (dedupIndex == null) {
+            dedupIndex = new HashMap<>(Math.max(16, books.size() * 2));
+            for (Book book : books) {
+                dedupIndex.putIfAbsent(dedupKey(book), book);
+            }
+        }
+    }
+
+    /**
+      Checks whether duplicate detection is enabled.
+      @return true if duplicates are collapsed on add.
+    */
+    public boolean isDeduplicating() {
+        return dedupIndex != null;
+    }
+
+    /**
+      Returns how many books have been collapsed into an existing copy since
+      duplicate detection was first enabled.
+      @return The number of duplicates skipped or merged.
+    */
+    public int getDuplicatesCollapsed() {
+        return duplicatesCollapsed;
+    }
+
+    /**
+      Normalizes a title or author for whitespace-insensitive keyed lookups: the
+      match key with surrounding whitespace trimmed and inner runs collapsed.
+      @param text The text to normalize.
+      @return The normalized key.
+    */
+    static String normalize(String text) {
+        return collapseWhitespace(BookKeys.matchKey(text));
+    }
+
+    private static String collapseWhitespace(String key) {
+        return WHITESPACE.matcher(key.trim()).replaceAll(" ");
+    }
+
+    /**
+      Finds the book this library kept in place of a duplicate that addBook collapsed.
+      @param book A book that was passed to addBook.
+      @return The book held by the library for it: the book itself if it was added,
+      the earlier book it was merged into if it was collapsed, or null if neither.
+    */
+    Book keptBook(Book book) {
+        if (idOf(book) >= 0) {
+            return book;
+        }
+        return dedupIndex == null ? null : dedupIndex.get(dedupKey(book));
+    }
+
+    private static String dedupKey(Book book) {
+        return collapseWhitespace(book.getTitleKey()) + '\u001F' + collapseWhitespace(book.getAuthorKey());
+    }
+
+    private void mergeDuplicate(Book existing, Book duplicate) {
+        int rating = existing.getRating() == 0 ? duplicate.getRating() : existing.getRating();
+        updateBook(existing, rating, existing.isRead() || duplicate.isRead());
     }
 
     /**
@@ -36,9 +629,18 @@ public class Library {
       @return A list of books that match the title.
     */
     public List<Book> searchByTitle(String title) {
+        long start = tracer.start();
+        String key = BookKeys.matchKey(title);
+        List<Book> results = cached(QueryCache.Kind.TITLE, key, () -> findByTitle(key));
+        tracer.record(OperationTracer.Operation.SEARCH_BY_TITLE, start, results.size());
+        return results;
+    }
+
+    private List<Book> findByTitle(String key) {
         List<Book> results = new ArrayList<>();
-        for (Book book : books) {
-            if (book.getTitle().equalsIgnoreCase(title)) {  // Case-insensitive comparison.
+        for (int id = titleIndex.first(BookKeys.hash(key)); id >= 0; id = titleIndex.next(id)) {
+            Book book = books.get(id);
+            if (book.getTitleKey().equals(key)) {  // Compares normalized keys; rules out hash collisions.
                 results.add(book);
             }
         }
@@ -51,9 +653,18 @@ public class Library {
       @return A list of books that match the author.
     */
     public List<Book> searchByAuthor(String author) {
+        long start = tracer.start();
+        String key = BookKeys.matchKey(author);
+        List<Book> results = cached(QueryCache.Kind.AUTHOR, key, () -> findByAuthor(key));
+        tracer.record(OperationTracer.Operation.SEARCH_BY_AUTHOR, start, results.size());
+        return results;
+    }
+
+    private List<Book> findByAuthor(String key) {
         List<Book> results = new ArrayList<>();
-        for (Book book : books) {
-            if (book.getAuthor().equalsIgnoreCase(author)) {  // Case-insensitive comparison.
+        for (int id = authorIndex.first(BookKeys.hash(key)); id >= 0; id = authorIndex.next(id)) {
+            Book book = books.get(id);
+            if (book.getAuthorKey().equals(key)) {  // Compares normalized keys; rules out hash collisions.
                 results.add(book);
             }
         }
@@ -66,11 +677,43 @@ public class Library {
       @return A list of books with the specified rating.
     */
     public List<Book> searchByRating(int rating) {
+        long start = tracer.start();
+        List<Book> results = cached(QueryCache.Kind.RATING, Integer.toString(rating), () -> findByRating(rating));
+        tracer.record(OperationTracer.Operation.SEARCH_BY_RATING, start, results.size());
+        return results;
+    }
+
+    private List<Book> findByRating(int rating) {
+        int slot = ratingSlots.get(rating);
+        return slot < 0 ? new ArrayList<>() : booksIn(ratingIds.get(slot));
+    }
+
+    /**
+      Searches for books with the given rating that are read, or unread, by
+      intersecting the rating and read-status bitmaps.
+      @param rating The rating to search for.
+      @param read True for read books with the rating, false for unread ones.
+      @return A list of matching books, in the order they were added.
+    */
+    public List<Book> searchByRating(int rating, boolean read) {
+        long start = tracer.start();
+        int slot = ratingSlots.get(rating);
         List<Book> results = new ArrayList<>();
-        for (Book book : books) {
-            if (book.getRating() == rating) {  // Matches books with the same rating.
-                results.add(book);
-            }
+        if (slot >= 0) {
+            IntBitmap withRating = ratingIds.get(slot);
+            results = booksIn(read ? withRating.and(readIds) : withRating.andNot(readIds));
+        }
+        tracer.record(OperationTracer.Operation.SEARCH_BY_RATING, start, results.size());
+        return results;
+    }
+
+    /**
+      Collects the books whose ids are set in a bitmap, in id order.
+    */
+    private List<Book> booksIn(IntBitmap ids) {
+        List<Book> results = new ArrayList<>(ids.cardinality());
+        for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+            results.add(books.get(id));
         }
         return results;
     }
@@ -81,16 +724,31 @@ public class Library {
      * @return 
     */
     public boolean setToRead(String title) {
-        for (Book book : books) {
-            if (book.getTitle().equalsIgnoreCase(title)) {
-                book.setRead(true); 
-                System.out.println(book.getTitle() + " marked as read.");
-                return true;
+        long start = tracer.start();
+        Book book = findFirstByTitle(title);
+        if (book != null) {
+            updateBook(book, book.getRating(), true);
+            System.out.println(book.getTitle() + " marked as read.");
+        } else {
+            System.out.println("Book not found.");
+        }
+        tracer.record(OperationTracer.Operation.SET_TO_READ, start, book != null ? 1 : 0);
+        return book != null;
+    }
+
+    /**
+      Finds the first book added with the given title, ignoring case.
+      @param title The title to look for.
+      @return The book, or null if there is none.
+    */
+    private Book findFirstByTitle(String title) {
+        String key = BookKeys.matchKey(title);
+        for (int id = titleIndex.first(BookKeys.hash(key)); id >= 0; id = titleIndex.next(id)) {
+            if (books.get(id).getTitleKey().equals(key)) {
+                return books.get(id);
             }
         }
-        
-        System.out.println("Book not found.");
-        return false;
+        return null;
     }
 
     /**
@@ -100,15 +758,16 @@ public class Library {
      * @return 
     */
     public boolean rateBook(String title, int rating) {
-        for (Book book : books) {
-            if (book.getTitle().equalsIgnoreCase(title)) {
-                book.setRating(rating);
-                System.out.println(book.getTitle() + " rated " + rating);
-                return true;
-            }
+        long start = tracer.start();
+        Book book = findFirstByTitle(title);
+        if (book != null) {
+            updateBook(book, rating, book.isRead());
+            System.out.println(book.getTitle() + " rated " + rating);
+        } else {
+            System.out.println("Book not found.");
         }
-        System.out.println("Book not found.");
-        return false;
+        tracer.record(OperationTracer.Operation.RATE_BOOK, start, book != null ? 1 : 0);
+        return book != null;
     }
 
     /**
@@ -116,18 +775,15 @@ public class Library {
       @return A list of books sorted alphabetically by title.
     */
     public List<Book> getAllBooksSortedByTitle() {
+        long start = tracer.start();
+        List<Book> results = cached(QueryCache.Kind.SORTED_BY_TITLE, "", this::sortByTitle);
+        tracer.record(OperationTracer.Operation.SORTED_BY_TITLE, start, results.size());
+        return results;
+    }
+
+    private List<Book> sortByTitle() {
         List<Book> sortedBooks = new ArrayList<>(books);
-        
-        // Bubble sort algorithm to sort books by title
-        for (int i = 0; i < sortedBooks.size() - 1; i++) {
-            for (int j = 0; j < sortedBooks.size() - i - 1; j++) {
-                if (sortedBooks.get(j).getTitle().compareTo(sortedBooks.get(j + 1).getTitle()) > 0) {
-                    Book temp = sortedBooks.get(j);
-                    sortedBooks.set(j, sortedBooks.get(j + 1));
-                    sortedBooks.set(j + 1, temp);
-                }
-            }
-        }
+        sortedBooks.sort(Book.BY_TITLE);  // Stable, so books with equal titles keep the order they were added in.
         return sortedBooks;
     }
 
@@ -136,18 +792,15 @@ public class Library {
       @return A list of books sorted alphabetically by author.
     */
     public List<Book> getAllBooksSortedByAuthor() {
+        long start = tracer.start();
+        List<Book> results = cached(QueryCache.Kind.SORTED_BY_AUTHOR, "", this::sortByAuthor);
+        tracer.record(OperationTracer.Operation.SORTED_BY_AUTHOR, start, results.size());
+        return results;
+    }
+
+    private List<Book> sortByAuthor() {
         List<Book> sortedBooks = new ArrayList<>(books);
-        
-        // Bubble sort algorithm to sort books by author
-        for (int i = 0; i < sortedBooks.size() - 1; i++) {
-            for (int j = 0; j < sortedBooks.size() - i - 1; j++) {
-                if (sortedBooks.get(j).getAuthor().compareTo(sortedBooks.get(j + 1).getAuthor()) > 0) {
-                    Book temp = sortedBooks.get(j);
-                    sortedBooks.set(j, sortedBooks.get(j + 1));
-                    sortedBooks.set(j + 1, temp);
-                }
-            }
-        }
+        sortedBooks.sort(Book.BY_AUTHOR);  // Stable, so books with equal authors keep the order they were added in.
         return sortedBooks;
     }
 
@@ -157,12 +810,9 @@ public class Library {
       @return A list of books that are marked as read.
     */
     public List<Book> getReadBooks() {
-        List<Book> readBooks = new ArrayList<>();
-        for (Book book : books) {
-            if (book.isRead()) {  
-                readBooks.add(book);
-            }
-        }
+        long start = tracer.start();
+        List<Book> readBooks = booksIn(readIds);
+        tracer.record(OperationTracer.Operation.READ_BOOKS, start, readBooks.size());
         return readBooks;
     }
 
@@ -171,12 +821,14 @@ public class Library {
       @return A list of books that are unread.
     */
     public List<Book> getUnreadBooks() {
-        List<Book> unreadBooks = new ArrayList<>();
-        for (Book book : books) {
-            if (!book.isRead()) {  
-                unreadBooks.add(book);
+        long start = tracer.start();
+        List<Book> unreadBooks = new ArrayList<>(books.size() - readIds.cardinality());
+        for (int id = 0; id < books.size(); id++) {
+            if (!readIds.get(id)) {  
+                unreadBooks.add(books.get(id));
             }
         }
+        tracer.record(OperationTracer.Operation.UNREAD_BOOKS, start, unreadBooks.size());
         return unreadBooks;  
     }
 
@@ -185,33 +837,153 @@ public class Library {
       @return A randomly selected unread book, or null if no unread books exist.
     */
     public Book suggestRandomUnreadBook() {
-        List<Book> unreadBooks = getUnreadBooks();
-        if (unreadBooks.isEmpty()) {
-            return null;  
+        long start = tracer.start();
+        int unreadCount = books.size() - readIds.cardinality();
+        Book suggestion = null;
+        if (unreadCount > 0) {
+            Random random = new Random();
+            int remaining = random.nextInt(unreadCount);  // Pick the n-th unread id without building the list.
+            for (int id = 0; suggestion == null; id++) {
+                if (!readIds.get(id) && remaining-- == 0) {
+                    suggestion = books.get(id);
+                }
+            }
         }
-        Random random = new Random();
-        return unreadBooks.get(random.nextInt(unreadBooks.size()));
+        tracer.record(OperationTracer.Operation.SUGGEST_UNREAD, start, suggestion != null ? 1 : 0);
+        return suggestion;
     }
 
     /**
       Adds multiple books from a file where each line represents a book.
-      Each line should be in the format: title;author
+      The format is detected from the first line: JSON Lines, TSV, CSV with a
+      title,author header, or otherwise the original title;author format.
+      A header line is skipped and malformed lines are counted and skipped.
       @param filename The name of the file to read books from.
     */
     public void addBooksFromFile(String filename) {
-        try (BufferedReader br = new BufferedReader(new FileReader(filename))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                String[] parts = line.split(";");  
-                String title = parts[0];
-                String author = parts[1];
-                int rating = 0;
-                addBook(new Book(title, author, rating));
-            }
-            System.out.println("Books added from file.");
+        long start = tracer.start();
+        int added = 0;
+        int collapsedBefore = getDuplicatesCollapsed();
+        try (BufferedReader br = new BufferedReader(new FileReader(filename, StandardCharsets.UTF_8))) {
+            BookParser parser = BookFormat.open(br);
+            added = addBooks(parser);
+            if (parser.getSkippedCount() > 0) {
+                System.out.println(parser.getSkippedCount() + " malformed lines skipped.");
+            }
+            if (isDeduplicating()) {
+                System.out.println("Books added from file, " + (getDuplicatesCollapsed() - collapsedBefore) + " duplicates collapsed.");
+            } else {
+                System.out.println("Books added from file.");
+            }
+        } catch (IOException e) {
+            System.out.println("Error reading the file.");
+        }
+        tracer.record(OperationTracer.Operation.ADD_BOOKS_FROM_FILE, start, added);
+    }
+
+    /**
+      Adds every book a parser reads. This is the bulk-load path shared by all
+      import formats; the record holder is reused for every book.
+      @param parser The parser to read books from.
+      @return The number of records read.
+      @throws IOException If the parser's input cannot be read.
+    */
+    public int addBooks(BookParser parser) throws IOException {
+        long start = tracer.start();
+        BookRecord record = new BookRecord();
+        int count = 0;
+        try {
+            while (parser.next(record)) {
+                addBook(record.toBook());
+                count++;
+            }
+        } finally {
+            tracer.record(OperationTracer.Operation.ADD_BOOKS, start, count);
+        }
+        return count;
+    }
+
+    /**
+      Adds the books appended to a file since the last call for the same file.
+      Only the new bytes are read; a trailing line without a newline is left for
+      the next call, since the writer may still be in the middle of it. If the file
+      was replaced or truncated since the last call, it is read from the start again.
+      The file's format is detected from its first line, as in addBooksFromFile.
+      @param filename The name of the file to read new books from.
+      @return The number of records ingested, or -1 if the file could not be read.
+    */
+    public int addNewBooksFromFile(String filename) {
+        long start = tracer.start();
+        int ingested = addNewBooks(filename);
+        tracer.record(OperationTracer.Operation.ADD_NEW_BOOKS_FROM_FILE, start, Math.max(ingested, 0));
+        return ingested;
+    }
+
+    private int addNewBooks(String filename) {
+        Path path = Paths.get(filename).toAbsolutePath().normalize();
+        ImportCursor cursor = importCursors.computeIfAbsent(path.toString(), p -> new ImportCursor());
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            cursor.validate(channel, path);
+            long end = cursor.findLastLineEnd(channel);
+            if (end == cursor.getOffset()) {
+                return 0;
+            }
+            BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(cursor.openDelta(channel, end), StandardCharsets.UTF_8));
+            Reader records = reader;
+            if (cursor.getFormat() == null) {
+                BookFormat.Header header = BookFormat.readHeader(reader);
+                cursor.setFormat(header.format);
+                records = header.records;
+            }
+            int ingested = addBooks(cursor.getFormat().newParser(records));
+            cursor.advance(channel, end);
+            return ingested;
+        } catch (IOException e) {
+            System.out.println("Error reading the file.");
+            return -1;
+        }
+    }
+
+    /**
+      Streams every book in the library to the given stream without copying the
+      list first. Query results can be exported the same way with BookExporter.
+      @param out The stream to write to; it is flushed but not closed.
+      @param format The output format.
+      @param gzip True to gzip the output.
+      @throws IOException If the stream cannot be written.
+    */
+    public void exportTo(OutputStream out, BookExporter.Format format, boolean gzip) throws IOException {
+        long start = tracer.start();
+        try {
+            BookExporter.export(allBooks(), out, format, gzip);
+        } finally {
+            tracer.record(OperationTracer.Operation.EXPORT, start, 0);
+        }
+    }
+
+    /**
+      Gives read-only access to every book in insertion order, without copying.
+      @return A view of the books in the library.
+    */
+    Iterable<Book> allBooks() {
+        return Collections.unmodifiableList(books);
+    }
+
+    /**
+      Adds every book from a binary snapshot file written by exportTo, gzipped or not.
+      @param filename The name of the snapshot file.
+      @return The number of books read, or -1 if the file could not be read.
+    */
+    public int addBooksFromSnapshot(String filename) {
+        long start = tracer.start();
+        int added = -1;
+        try (InputStream in = new FileInputStream(filename)) {
+            added = BookSnapshot.read(in, this);
         } catch (IOException e) {
             System.out.println("Error reading the file.");
         }
+        tracer.record(OperationTracer.Operation.ADD_BOOKS_FROM_SNAPSHOT, start, Math.max(added, 0));
+        return added;
     }
 }
- 
\ No newline at end of file
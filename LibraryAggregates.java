@@ -0,0 +1,138 @@
+import java.util.*;
+
+/**
+ * LibraryAggregates keeps a library's reading statistics up to date as books are
+ * added and changed, so reading any of them never walks the books. Per-author
+ * counters live in parallel int arrays indexed by an author slot, and each book id
+ * remembers its author's slot so an update touches only its own counters.
+ *
+ * Authors are grouped the way searchByAuthor matches them, by their match keys.
+ */
+class LibraryAggregates {
+    private final Map<String, Integer> authorSlots = new HashMap<>();
+    private final List<String> authorNames = new ArrayList<>();
+    private final IntArrayList authorOf = new IntArrayList();      // Book id -> author slot.
+    private final IntArrayList bookCounts = new IntArrayList();    // Author slot -> counters.
+    private final IntArrayList readCounts = new IntArrayList();
+    private final IntArrayList ratedCounts = new IntArrayList();
+    private long[] ratingSums = new long[16];
+    private final IntIntHashMap ratingCounts = new IntIntHashMap(0);
+    private final IntArrayList ratingsSeen = new IntArrayList();
+    private int readCount;
+
+    /**
+     * Counts a newly added book. Ids must be added in order 0, 1, 2, ...
+     *
+     * @param id   the book's id
+     * @param book the book
+     */
+    void bookAdded(int id, Book book) {
+        String key = book.getAuthorKey();
+        Integer slot = authorSlots.get(key);
+        if (slot == null) {
+            slot = authorNames.size();
+            authorSlots.put(key, slot);
+            authorNames.add(book.getAuthor());
+            bookCounts.add(0);
+            readCounts.add(0);
+            ratedCounts.add(0);
+            if (slot == ratingSums.length) {
+                ratingSums = Arrays.copyOf(ratingSums, slot * 2);
+            }
+        }
+        authorOf.add(slot);
+        bookCounts.set(slot, bookCounts.get(slot) + 1);
+        count(slot, book.getRating(), book.isRead(), 1);
+    }
+
+    /**
+     * Moves a book's counters from its old rating and read status to its new ones.
+     *
+     * @param id        the book's id
+     * @param oldRating the rating before the change
+     * @param oldRead   the read status before the change
+     * @param rating    the new rating
+     * @param read      the new read status
+     */
+    void bookUpdated(int id, int oldRating, boolean oldRead, int rating, boolean read) {
+        int slot = authorOf.get(id);
+        count(slot, oldRating, oldRead, -1);
+        count(slot, rating, read, 1);
+    }
+
+    private void count(int slot, int rating, boolean read, int delta) {
+        if (read) {
+            readCounts.set(slot, readCounts.get(slot) + delta);
+            readCount += delta;
+        }
+        if (rating > 0) {
+            ratedCounts.set(slot, ratedCounts.get(slot) + delta);
+            ratingSums[slot] += (long) rating * delta;
+        }
+        int ratingCount = ratingCounts.get(rating);
+        if (ratingCount == 0 && delta > 0) {
+            boolean seen = false;
+            for (int i = 0; i < ratingsSeen.size() && !seen; i++) {
+                seen = ratingsSeen.get(i) == rating;
+            }
+            if (!seen) {
+                ratingsSeen.add(rating);
+            }
+        }
+        ratingCounts.put(rating, ratingCount + delta);
+    }
+
+    /**
+     * Gets the number of read books.
+     *
+     * @return the read count
+     */
+    int getReadCount() {
+        return readCount;
+    }
+
+    /**
+     * Gets one author's statistics in constant time.
+     *
+     * @param author the author, in any case
+     * @return the author's statistics, or null if the library has no books by them
+     */
+    AuthorStats authorStats(String author) {
+        Integer slot = authorSlots.get(BookKeys.matchKey(author));
+        return slot == null ? null : authorStats(slot);
+    }
+
+    /**
+     * Gets every author's statistics, in the order the authors were first added.
+     *
+     * @return one entry per author
+     */
+    List<AuthorStats> authorStats() {
+        List<AuthorStats> stats = new ArrayList<>(authorNames.size());
+        for (int slot = 0; slot < authorNames.size(); slot++) {
+            stats.add(authorStats(slot));
+        }
+        return stats;
+    }
+
+    private AuthorStats authorStats(int slot) {
+        return new AuthorStats(authorNames.get(slot), bookCounts.get(slot), readCounts.get(slot),
+                ratedCounts.get(slot), ratingSums[slot]);
+    }
+
+    /**
+     * Gets how many books have each rating, skipping ratings no book has.
+     *
+     * @return book counts keyed by rating, in ascending rating order
+     */
+    SortedMap<Integer, Integer> ratingDistribution() {
+        SortedMap<Integer, Integer> distribution = new TreeMap<>();
+        for (int i = 0; i < ratingsSeen.size(); i++) {
+            int count = ratingCounts.get(ratingsSeen.get(i));
+            if (count > 0) {
+                distribution.put(ratingsSeen.get(i), count);
+            }
+        }
+        return distribution;
+    }
+}
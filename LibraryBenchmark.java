@@ -0,0 +1,131 @@
+import java.io.*;
+
+/**
+ * LibraryBenchmark is a simple throughput benchmark for the library's bulk paths.
+ * It is not part of the test suite; run it by hand and compare results between runs:
+ *
+ * <pre>java LibraryBenchmark [catalog sizes...]</pre>
+ *
+ * Each measurement is repeated after a warm-up pass, and the best run is reported.
+ */
+public class LibraryBenchmark {
+    private static final int RUNS = 5;
+
+    public static void main(String[] args) throws IOException {
+        int[] sizes = args.length == 0 ? new int[]{10_000, 100_000, 1_000_000} : new int[args.length];
+        for (int i = 0; i < args.length; i++) {
+            sizes[i] = Integer.parseInt(args[i]);
+        }
+        for (int size : sizes) {
+            Library library = syntheticLibrary(size);
+            benchmarkRender(library, size);
+            benchmarkTracingOverhead(library);
+            for (BookExporter.Format format : BookExporter.Format.values()) {
+                benchmarkExport(library, size, format, false);
+                benchmarkExport(library, size, format, true);
+            }
+        }
+    }
+
+    /**
+     * Builds a library of the given size with a few hundred distinct authors.
+     */
+    static Library syntheticLibrary(int size) {
+        Library library = new Library();
+        for (int i = 0; i < size; i++) {
+            Book book = new Book("Synthetic Title, Volume " + i, "Author " + (i % 500), i % 6);
+            book.setRead(i % 3 == 0);
+            library.addBook(book);
+        }
+        return library;
+    }
+
+    /**
+     * Times cheap, frequent library operations, a title search and undoing and
+     * redoing a rating change, with tracing on and off, to show what the latency
+     * tracer adds to real calls.
+     */
+    private static void benchmarkTracingOverhead(Library library) {
+        int calls = 100_000;
+        String title = "Synthetic Title, Volume 7";
+        Book book = library.searchByTitle(title).get(0);
+        library.updateBook(book, book.getRating() % 5 + 1, book.isRead());  // Something to undo, without rateBook's output.
+        long[] best = {Long.MAX_VALUE, Long.MAX_VALUE};
+        for (int run = 0; run <= RUNS; run++) {
+            for (int traced = 0; traced < 2; traced++) {
+                library.getTracer().setEnabled(traced == 1);
+                long start = System.nanoTime();
+                for (int i = 0; i < calls; i++) {
+                    library.searchByTitle(title);
+                    library.undo();
+                    library.redo();
+                }
+                long elapsed = System.nanoTime() - start;
+                if (run > 0) {
+                    best[traced] = Math.min(best[traced], elapsed);
+                }
+            }
+        }
+        library.getTracer().setEnabled(true);
+        double on = (double) best[1] / (3 * calls);
+        double off = (double) best[0] / (3 * calls);
+        System.out.printf("trace  per operation: %.1f ns traced, %.1f ns untraced, overhead %.1f ns%n",
+                on, off, on - off);
+    }
+
+    /**
+     * Renders the whole library as a listing into one reused builder.
+     */
+    private static void benchmarkRender(Library library, int size) {
+        java.util.List<Book> books = library.getUnreadBooks();
+        StringBuilder out = new StringBuilder();
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run <= RUNS; run++) {
+            out.setLength(0);
+            long start = System.nanoTime();
+            for (Book book : books) {
+                book.appendTo(out).append('\n');
+            }
+            long elapsed = System.nanoTime() - start;
+            if (run > 0) {
+                best = Math.min(best, elapsed);
+            }
+        }
+        System.out.printf("render %-21s %,11d books %,13d chars %8.1f ms %,27.0f books/s%n",
+                "", books.size(), out.length(), best / 1e6, books.size() / (best / 1e9));
+    }
+
+    private static void benchmarkExport(Library library, int size, BookExporter.Format format, boolean gzip) throws IOException {
+        long best = Long.MAX_VALUE;
+        long bytes = 0;
+        for (int run = 0; run <= RUNS; run++) {
+            CountingOutputStream out = new CountingOutputStream();
+            long start = System.nanoTime();
+            library.exportTo(out, format, gzip);
+            long elapsed = System.nanoTime() - start;
+            if (run > 0) {
+                best = Math.min(best, elapsed);  // Run 0 is the warm-up.
+            }
+            bytes = out.count;
+        }
+        System.out.printf("export %-10s gzip=%-5b %,11d books %,13d bytes %8.1f ms %8.1f MB/s %,12.0f books/s%n",
+                format, gzip, size, bytes, best / 1e6, bytes / (best / 1e9) / 1e6, size / (best / 1e9));
+    }
+
+    /**
+     * Discards everything written to it, counting the bytes.
+     */
+    static class CountingOutputStream extends OutputStream {
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] bytes, int off, int len) {
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/**
+ * A LibraryChange describes one book being added or changed, as delivered by the
+ * library's change stream. It records the book's values before and after the change,
+ * because the book itself may have changed again by the time a subscriber sees it.
+ *
+ * Within one delivered batch each book appears at most once: several changes to a
+ * book in the same burst are coalesced into one, from its first old values to its
+ * last new values.
+ */
+public class LibraryChange {
+
+    /**
+     * What happened to the book.
+     */
+    public enum Kind {
+        /** The book was added; its old values equal its new ones. */
+        ADDED,
+        /** The book's rating, read status or both changed. */
+        UPDATED
+    }
+
+    private final Kind kind;
+    private final Book book;
+    private final int oldRating;
+    private final boolean oldRead;
+    private final int newRating;
+    private final boolean newRead;
+
+    LibraryChange(Kind kind, Book book, int oldRating, boolean oldRead, int newRating, boolean newRead) {
+        this.kind = kind;
+        this.book = book;
+        this.oldRating = oldRating;
+        this.oldRead = oldRead;
+        this.newRating = newRating;
+        this.newRead = newRead;
+    }
+
+    /**
+     * Gets what happened to the book.
+     *
+     * @return the kind of change
+     */
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Gets the book that was added or changed.
+     *
+     * @return the book
+     */
+    public Book getBook() {
+        return book;
+    }
+
+    /**
+     * Gets the rating before the change.
+     *
+     * @return the old rating
+     */
+    public int getOldRating() {
+        return oldRating;
+    }
+
+    /**
+     * Gets the read status before the change.
+     *
+     * @return the old read status
+     */
+    public boolean getOldRead() {
+        return oldRead;
+    }
+
+    /**
+     * Gets the rating after the change.
+     *
+     * @return the new rating
+     */
+    public int getNewRating() {
+        return newRating;
+    }
+
+    /**
+     * Gets the read status after the change.
+     *
+     * @return the new read status
+     */
+    public boolean getNewRead() {
+        return newRead;
+    }
+
+    /**
+     * Tells whether the book was rated differently.
+     *
+     * @return true if the rating changed
+     */
+    public boolean isRatingChange() {
+        return kind == Kind.UPDATED && oldRating != newRating;
+    }
+
+    /**
+     * Tells whether the book was marked read or unread.
+     *
+     * @return true if the read status changed
+     */
+    public boolean isReadChange() {
+        return kind == Kind.UPDATED && oldRead != newRead;
+    }
+
+    /**
+     * Combines this change with a later change to the same book.
+     *
+     * @param later the later change
+     * @return one change spanning both
+     */
+    LibraryChange followedBy(LibraryChange later) {
+        return new LibraryChange(kind, book, oldRating, oldRead, later.newRating, later.newRead);
+    }
+
+    @Override
+    public String toString() {
+        return kind + " " + book + (kind == Kind.UPDATED
+                ? " (rating " + oldRating + " -> " + newRating + ", read " + oldRead + " -> " + newRead + ")" : "");
+    }
+}
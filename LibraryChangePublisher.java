@@ -0,0 +1,119 @@
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * LibraryChangePublisher turns a library's change notifications into a
+ * {@link Flow.Publisher} of batches of {@link LibraryChange}s.
+ *
+ * Changes are not published one at a time. They collect in a pending batch, and
+ * repeated changes to one book are coalesced. The batch is published once it reaches
+ * {@link #MAX_BATCH} books, or {@link #LINGER_MILLIS} after its first change, so a
+ * bulk import reaches subscribers as a handful of large batches.
+ *
+ * Backpressure never blocks the library and never drops changes. While any subscriber
+ * is more than a few batches behind, publishing is deferred. The pending batch keeps
+ * growing and coalescing until the subscriber catches up, so slow subscribers get
+ * fewer, larger batches.
+ */
+class LibraryChangePublisher implements LibraryListener {
+    static final int MAX_BATCH = 1024;
+    static final long LINGER_MILLIS = 50;
+    private static final int MAX_LAG = 4;  // Batches a subscriber may have queued before publishing waits.
+
+    private static final ScheduledExecutorService FLUSHER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "library-change-flusher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final SubmissionPublisher<List<LibraryChange>> publisher = new SubmissionPublisher<>();
+    private final Map<Book, LibraryChange> pending = new LinkedHashMap<>();  // Keyed by identity: Book has no equals.
+    private final long lingerMillis;
+    private boolean flushScheduled;
+
+    /**
+     * Creates a publisher that waits {@link #LINGER_MILLIS} before publishing a batch.
+     */
+    LibraryChangePublisher() {
+        this(LINGER_MILLIS);
+    }
+
+    /**
+     * Creates a publisher with its own linger delay, for tests that must not race it.
+     *
+     * @param lingerMillis how long a batch collects changes before it is published
+     */
+    LibraryChangePublisher(long lingerMillis) {
+        this.lingerMillis = lingerMillis;
+    }
+
+    /**
+     * Gets the publisher subscribers attach to.
+     *
+     * @return the publisher of change batches
+     */
+    Flow.Publisher<List<LibraryChange>> publisher() {
+        return publisher;
+    }
+
+    @Override
+    public void bookAdded(Book book) {
+        add(new LibraryChange(LibraryChange.Kind.ADDED, book, book.getRating(), book.isRead(), book.getRating(), book.isRead()));
+    }
+
+    @Override
+    public void bookUpdated(Book book, int oldRating, boolean oldRead) {
+        add(new LibraryChange(LibraryChange.Kind.UPDATED, book, oldRating, oldRead, book.getRating(), book.isRead()));
+    }
+
+    private synchronized void add(LibraryChange change) {
+        if (!publisher.hasSubscribers()) {
+            return;
+        }
+        pending.merge(change.getBook(), change, LibraryChange::followedBy);
+        if (pending.size() >= MAX_BATCH && publisher.estimateMaximumLag() < MAX_LAG) {
+            publish();
+        } else {
+            scheduleFlush();
+        }
+    }
+
+    private void scheduleFlush() {
+        if (!flushScheduled) {
+            flushScheduled = true;
+            FLUSHER.schedule(this::flushLater, lingerMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private synchronized void flushLater() {
+        flushScheduled = false;
+        if (pending.isEmpty()) {
+            return;
+        }
+        if (publisher.estimateMaximumLag() < MAX_LAG) {
+            publish();
+        } else {
+            scheduleFlush();  // A subscriber is behind; keep coalescing and try again.
+        }
+    }
+
+    /**
+     * Publishes the pending batch now, if there is one and no subscriber is behind.
+     * Otherwise the batch keeps coalescing and is published once they catch up.
+     */
+    synchronized void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        if (publisher.estimateMaximumLag() < MAX_LAG) {
+            publish();
+        } else {
+            scheduleFlush();
+        }
+    }
+
+    private void publish() {
+        publisher.submit(new ArrayList<>(pending.values()));  // Cannot block: lag is below the buffer size.
+        pending.clear();
+    }
+}
@@ -0,0 +1,138 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * File: LibraryChangeTest.java
+ * Description: Tests for the library change stream and the live list views it feeds using JUnit 5.
+ */
+
+public class LibraryChangeTest {
+
+    /** Collects every batch published to it. */
+    private static class CollectingSubscriber implements Flow.Subscriber<List<LibraryChange>> {
+        final BlockingQueue<List<LibraryChange>> batches = new LinkedBlockingQueue<>();
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(List<LibraryChange> batch) {
+            batches.add(batch);
+        }
+
+        @Override
+        public void onError(Throwable error) {
+        }
+
+        @Override
+        public void onComplete() {
+        }
+    }
+
+    @Test
+    public void testChangesToOneBookAreCoalesced() throws InterruptedException {
+        Library library = new Library();
+        LibraryChangePublisher changes = new LibraryChangePublisher(TimeUnit.HOURS.toMillis(1));  // Only flushes publish.
+        library.addListener(changes);
+        CollectingSubscriber subscriber = new CollectingSubscriber();
+        changes.publisher().subscribe(subscriber);
+        Book dune = new Book("Dune", "Frank Herbert", 0);
+        library.addBook(dune);
+        library.rateBook("Dune", 4);
+        library.setToRead("Dune");
+        changes.flush();
+
+        List<LibraryChange> batch = subscriber.batches.poll(5, TimeUnit.SECONDS);
+        assertEquals(1, batch.size());
+        assertEquals(LibraryChange.Kind.ADDED, batch.get(0).getKind());
+        assertEquals(4, batch.get(0).getNewRating());
+        assertTrue(batch.get(0).getNewRead());
+
+        library.rateBook("Dune", 2);
+        changes.flush();
+        batch = subscriber.batches.poll(5, TimeUnit.SECONDS);
+        assertTrue(batch.get(0).isRatingChange());
+        assertFalse(batch.get(0).isReadChange());
+        assertEquals(4, batch.get(0).getOldRating());
+    }
+
+    @Test
+    public void testPendingChangesArePublishedAfterLinger() throws InterruptedException {
+        Library library = new Library();
+        library.addBook(new Book("Dune", "Frank Herbert", 0));
+        CollectingSubscriber subscriber = new CollectingSubscriber();
+        library.changes().subscribe(subscriber);
+        library.rateBook("Dune", 2);
+        List<LibraryChange> batch = subscriber.batches.poll(5, TimeUnit.SECONDS);  // No flush: the linger delay publishes it.
+        assertNotNull(batch);
+        assertEquals(2, batch.get(0).getNewRating());
+    }
+
+    @Test
+    public void testBulkImportArrivesInBatches() throws InterruptedException {
+        ShardedLibrary library = new ShardedLibrary(4);
+        CollectingSubscriber subscriber = new CollectingSubscriber();
+        library.changes().subscribe(subscriber);
+        library.addBooksFromFile("books.txt");
+        library.flushChanges();
+
+        int changes = 0;
+        int batches = 0;
+        while (changes < library.getBookCount()) {
+            List<LibraryChange> batch = subscriber.batches.poll(5, TimeUnit.SECONDS);
+            assertNotNull(batch);
+            changes += batch.size();
+            batches++;
+        }
+        assertEquals(library.getBookCount(), changes);
+        assertTrue(batches <= changes / 100 + 1, batches + " batches for " + changes + " books");
+    }
+
+    @Test
+    public void testLiveViewUpdatesIncrementally() {
+        Book emma = new Book("Emma", "Jane Austen", 3);
+        Book persuasion = new Book("Persuasion", "Jane Austen", 5);
+        Book dune = new Book("Dune", "Frank Herbert", 5);
+        LiveBookListModel view = new LiveBookListModel();
+        view.show(new ArrayList<>(List.of(emma, persuasion)), book -> book.getRating() >= 3, Book.BY_TITLE);
+
+        view.apply(List.of(new LibraryChange(LibraryChange.Kind.ADDED, dune, 5, false, 5, false)));
+        assertEquals(3, view.getSize());
+        assertSame(dune, view.getElementAt(0));
+
+        emma.setRating(1);
+        view.apply(List.of(new LibraryChange(LibraryChange.Kind.UPDATED, emma, 3, false, 1, false)));
+        assertEquals(2, view.getSize());
+        assertSame(persuasion, view.getElementAt(1));
+    }
+
+    @Test
+    public void testUnsortedLiveViewKeepsArrivalOrder() {
+        Book emma = new Book("Emma", "Jane Austen", 3);
+        Book persuasion = new Book("Persuasion", "Jane Austen", 3);
+        Book sanditon = new Book("Sanditon", "Jane Austen", 3);
+        LiveBookListModel view = new LiveBookListModel();
+        view.show(new ArrayList<>(List.of(persuasion, emma)), book -> book.getRating() >= 3, null);
+
+        view.apply(List.of(new LibraryChange(LibraryChange.Kind.ADDED, sanditon, 3, false, 3, false)));
+        emma.setRating(1);
+        view.apply(List.of(new LibraryChange(LibraryChange.Kind.UPDATED, emma, 3, false, 1, false)));
+        assertEquals(2, view.getSize());
+        assertSame(persuasion, view.getElementAt(0));
+        assertSame(sanditon, view.getElementAt(1));
+
+        emma.setRating(4);
+        view.apply(List.of(new LibraryChange(LibraryChange.Kind.UPDATED, emma, 1, false, 4, false),
+                new LibraryChange(LibraryChange.Kind.UPDATED, persuasion, 3, false, 3, false)));
+        assertEquals(3, view.getSize());
+        assertSame(emma, view.getElementAt(2));  // Came back, so it arrives again at the end.
+    }
+}
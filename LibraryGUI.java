@@ -1,7 +1,18 @@
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.KeyEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.io.*;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 /**
  * LibraryGUI class provides a graphical user interface for managing a library system.
@@ -13,50 +24,147 @@ import java.util.List;
 
 public class LibraryGUI { 
     private Library library;
+    private final Map<Component, Supplier<JPanel>> unbuiltTabs = new HashMap<>();  // Placeholder -> panel factory.
+    private final List<LiveBookListModel> liveViews = new ArrayList<>();  // Kept current from library.changes().
+    private final JLabel statusLabel = new JLabel(" ");
 
     /**
      * Constructor initializes the LibraryGUI with a given Library instance
-     * and creates the GUI.
+     * and creates the GUI. Must be called on the event dispatch thread.
      *
      * @param library the Library object to manage book data
      */
     public LibraryGUI(Library library) { 
+        this(library, CompletableFuture.completedFuture(null));
+    }
+
+    /**
+     * Creates the GUI while the library is still being loaded on another thread.
+     * The frame is shown at once, but the tabs stay disabled until loading finishes.
+     * Must be called on the event dispatch thread.
+     *
+     * @param library the Library object to manage book data
+     * @param loading completes once the library has been loaded
+     */
+    LibraryGUI(Library library, CompletableFuture<?> loading) {
         this.library = library;
-        createAndShowGUI();
+        createAndShowGUI(loading);
     }
     
     
     /**
-     * Creates and displays the main GUI frame and its panels.
+     * Creates and displays the main GUI frame. Only the first tab's panel is built
+     * up front; the others are built the first time they are selected.
+     *
+     * @param loading completes once the library has been loaded
      */
-    private void createAndShowGUI() {
+    private void createAndShowGUI(CompletableFuture<?> loading) {
         JFrame frame = new JFrame("Library Management System");
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         frame.setSize(600, 600);
 
-        // Create panels for each functionality
-        JPanel addBookPanel = createAddBookPanel();
-        JPanel addBooksFromFilePanel = createAddBooksFromFilePanel(); 
-        JPanel searchPanel = createSearchPanel();
-        JPanel markReadPanel = createMarkReadPanel();
-        JPanel ratePanel = createRatePanel();
-        JPanel listPanel = createListPanel();
-        JPanel suggestPanel = createSuggestPanel();
-
-        // Add panels to a tabbed pane
+        // Add a placeholder per tab; each panel is created on first selection
         JTabbedPane tabbedPane = new JTabbedPane();
-        tabbedPane.addTab("Add Book", addBookPanel);
-        tabbedPane.addTab("Add Books from File", addBooksFromFilePanel); 
-        tabbedPane.addTab("Search Books", searchPanel);
-        tabbedPane.addTab("Mark as Read", markReadPanel);
-        tabbedPane.addTab("Rate Book", ratePanel);
-        tabbedPane.addTab("List Books", listPanel);
-        tabbedPane.addTab("Suggest Book", suggestPanel);
-
-        frame.add(tabbedPane);
+        addLazyTab(tabbedPane, "Add Book", this::createAddBookPanel);
+        addLazyTab(tabbedPane, "Add Books from File", this::createAddBooksFromFilePanel);
+        addLazyTab(tabbedPane, "Search Books", this::createSearchPanel);
+        addLazyTab(tabbedPane, "Mark as Read", this::createMarkReadPanel);
+        addLazyTab(tabbedPane, "Rate Book", this::createRatePanel);
+        addLazyTab(tabbedPane, "List Books", this::createListPanel);
+        addLazyTab(tabbedPane, "Suggest Book", this::createSuggestPanel);
+        addLazyTab(tabbedPane, "Statistics", this::createStatsPanel);
+        addLazyTab(tabbedPane, "Diagnostics", this::createDiagnosticsPanel);
+        tabbedPane.addChangeListener(e -> buildTab(tabbedPane, tabbedPane.getSelectedIndex()));
+        StartupTimer.mark("GUI built");
+
+        // No panel or key binding exists until the library is loaded, so nothing can touch it early
+        if (loading.isDone()) {
+            bindUndoKeys(frame.getRootPane());
+            buildTab(tabbedPane, 0);
+        } else {
+            tabbedPane.setEnabled(false);
+            frame.setTitle("Library Management System (loading...)");
+            loading.whenComplete((result, error) -> SwingUtilities.invokeLater(() -> {
+                StartupTimer.mark("library loaded");
+                tabbedPane.setEnabled(true);
+                bindUndoKeys(frame.getRootPane());
+                frame.setTitle("Library Management System");
+                buildTab(tabbedPane, tabbedPane.getSelectedIndex());
+            }));
+        }
+
+        frame.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowOpened(WindowEvent e) {
+                StartupTimer.firstFrameShown();
+            }
+
+            @Override
+            public void windowClosing(WindowEvent e) {
+                try {
+                    library.closeHistory();  // Runs before EXIT_ON_CLOSE exits.
+                } catch (IOException ex) {
+                    System.out.println("Error writing the history file.");
+                }
+            }
+        });
+        frame.add(tabbedPane, BorderLayout.CENTER);
+        frame.add(statusLabel, BorderLayout.SOUTH);
         frame.setVisible(true);
     }
 
+    /**
+     * Binds Ctrl+Z to undo and Ctrl+Y to redo the last rating or read change,
+     * wherever the focus is in the window. The outcome is shown in the status line.
+     */
+    private void bindUndoKeys(JRootPane rootPane) {
+        int menuMask = Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx();
+        InputMap keys = rootPane.getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW);
+        keys.put(KeyStroke.getKeyStroke(KeyEvent.VK_Z, menuMask), "undo");
+        keys.put(KeyStroke.getKeyStroke(KeyEvent.VK_Y, menuMask), "redo");
+        rootPane.getActionMap().put("undo", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                showLastChange(library.undo(), "Nothing to undo.");
+            }
+        });
+        rootPane.getActionMap().put("redo", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                showLastChange(library.redo(), "Nothing to redo.");
+            }
+        });
+    }
+
+    private void showLastChange(boolean changed, String otherwise) {
+        List<ChangeEvent> last = library.getRecentChanges(1);
+        statusLabel.setText(changed && !last.isEmpty() ? last.get(0).toString() : otherwise);
+    }
+
+    /**
+     * Adds a tab whose panel is built by the given factory on first selection.
+     */
+    private void addLazyTab(JTabbedPane tabbedPane, String title, Supplier<JPanel> factory) {
+        JPanel placeholder = new JPanel(new BorderLayout());
+        unbuiltTabs.put(placeholder, factory);
+        tabbedPane.addTab(title, placeholder);
+    }
+
+    /**
+     * Builds the panel of a lazy tab if it has not been built yet.
+     */
+    private void buildTab(JTabbedPane tabbedPane, int index) {
+        if (index < 0 || !tabbedPane.isEnabled()) {
+            return;
+        }
+        JPanel placeholder = (JPanel) tabbedPane.getComponentAt(index);
+        Supplier<JPanel> factory = unbuiltTabs.remove(placeholder);
+        if (factory != null) {
+            placeholder.add(factory.get(), BorderLayout.CENTER);
+            placeholder.revalidate();
+        }
+    }
+
     /**
      * Creates a panel for adding a single book.
      *
@@ -126,41 +234,40 @@ public class LibraryGUI {
         JComboBox<String> searchTypeComboBox = new JComboBox<>(new String[]{"Title", "Author", "Rating"});
         JTextField searchField = new JTextField();
         JButton searchButton = new JButton("Search");
-        JTextArea resultsArea = new JTextArea(10, 30);
-        resultsArea.setEditable(false);
+        LiveBookListModel results = newLiveView();
+        JList<Book> resultsList = newBookList(results, 10);
 
         // Add components to the panel
         panel.add(searchTypeComboBox, BorderLayout.NORTH);
         panel.add(searchField, BorderLayout.CENTER);
         panel.add(searchButton, BorderLayout.SOUTH);
-        panel.add(new JScrollPane(resultsArea), BorderLayout.EAST);
+        panel.add(new JScrollPane(resultsList), BorderLayout.EAST);
 
-        // Action listener for searching books
+        // Action listener for searching books; the results then follow later changes
         searchButton.addActionListener(e -> {
             String searchType = (String) searchTypeComboBox.getSelectedItem();
             String searchQuery = searchField.getText();
             if (!searchQuery.isEmpty()) {
-                List<Book> results;
                 switch (searchType) {
                     case "Title":
-                        results = library.searchByTitle(searchQuery);
+                        String titleKey = BookKeys.matchKey(searchQuery);
+                        results.show(library.searchByTitle(searchQuery), book -> book.getTitleKey().equals(titleKey), null);
                         break;
                     case "Author":
-                        results = library.searchByAuthor(searchQuery);
+                        String authorKey = BookKeys.matchKey(searchQuery);
+                        results.show(library.searchByAuthor(searchQuery), book -> book.getAuthorKey().equals(authorKey), null);
                         break;
                     case "Rating":
                         try {
                             int rating = Integer.parseInt(searchQuery);
-                            results = library.searchByRating(rating);
+                            results.show(library.searchByRating(rating), book -> book.getRating() == rating, null);
                         } catch (NumberFormatException ex) {
                             JOptionPane.showMessageDialog(null, "Please enter a valid number for rating.");
-                            return;
                         }
                         break;
                     default:
-                        results = List.of();
+                        break;
                 }
-                resultsArea.setText(formatBookList(results));
             } else {
                 JOptionPane.showMessageDialog(null, "Please enter a search query.");
             }
@@ -257,24 +364,18 @@ public class LibraryGUI {
         JPanel panel = new JPanel(new BorderLayout());
         JButton listByTitleButton = new JButton("List by Title");
         JButton listByAuthorButton = new JButton("List by Author");
-        JTextArea listArea = new JTextArea(15, 50);
-        listArea.setEditable(false);
+        LiveBookListModel listing = newLiveView();
+        JList<Book> bookList = newBookList(listing, 15);
 
         // Add components to the panel
         panel.add(listByTitleButton, BorderLayout.NORTH);
         panel.add(listByAuthorButton, BorderLayout.CENTER);
-        panel.add(new JScrollPane(listArea), BorderLayout.SOUTH);
-
-        // Action listeners for listing books
-        listByTitleButton.addActionListener(e -> {
-            List<Book> books = library.getAllBooksSortedByTitle();
-            listArea.setText(formatBookList(books));
-        });
+        panel.add(new JScrollPane(bookList), BorderLayout.SOUTH);
 
-        listByAuthorButton.addActionListener(e -> {
-            List<Book> books = library.getAllBooksSortedByAuthor();
-            listArea.setText(formatBookList(books));
-        });
+        // Action listeners for listing books; new and changed books then appear in place
+        Predicate<Book> everyBook = book -> true;
+        listByTitleButton.addActionListener(e -> listing.show(library.getAllBooksSortedByTitle(), everyBook, Book.BY_TITLE));
+        listByAuthorButton.addActionListener(e -> listing.show(library.getAllBooksSortedByAuthor(), everyBook, Book.BY_AUTHOR));
 
         return panel;
     }
@@ -306,22 +407,176 @@ public class LibraryGUI {
     }
 
     /**
-     * Formats a list of books into a readable string.
+     * Creates a panel showing the library's reading statistics: totals, the rating
+     * distribution and the authors with the most books.
+     *
+     * @return JPanel with a refresh button and a statistics area
+     */
+    private JPanel createStatsPanel() {
+        JPanel panel = new JPanel(new BorderLayout());
+        JButton refreshButton = new JButton("Refresh Statistics");
+        JTextArea statsArea = new JTextArea(20, 60);
+        statsArea.setEditable(false);
+        statsArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+
+        panel.add(refreshButton, BorderLayout.NORTH);
+        panel.add(new JScrollPane(statsArea), BorderLayout.CENTER);
+
+        // The aggregates are kept up to date on every change, so refreshing is cheap
+        refreshButton.addActionListener(e -> statsArea.setText(library.statsReport(100)));
+        statsArea.setText(library.statsReport(100));
+
+        return panel;
+    }
+
+    /**
+     * Creates a panel showing the latency trace of the library's operations.
      *
-     * @param books the list of books to format
-     * @return a formatted string of book details
+     * @return JPanel with a refresh button and a report area
+     */
+    private JPanel createDiagnosticsPanel() {
+        JPanel panel = new JPanel(new BorderLayout());
+        JButton refreshButton = new JButton("Show Latency Report");
+        JTextArea reportArea = new JTextArea(20, 60);
+        reportArea.setEditable(false);
+        reportArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+
+        panel.add(refreshButton, BorderLayout.NORTH);
+        panel.add(new JScrollPane(reportArea), BorderLayout.CENTER);
+
+        // Action listener for showing the percentiles and slow-operation log
+        refreshButton.addActionListener(e -> {
+            OperationTracer tracer = library.getTracer();
+            StringBuilder report = new StringBuilder(tracer.report()).append("\nSlow operations:\n");
+            for (String entry : tracer.getSlowOperations()) {
+                report.append(entry).append('\n');
+            }
+            report.append("\nRecent operations:\n").append(tracer.recentOperations(50));
+            reportArea.setText(report.toString());
+        });
+
+        return panel;
+    }
+
+    /**
+     * Creates a list view that follows the library's changes. The GUI subscribes
+     * to the change stream when the first such view is created.
      */
-    private String formatBookList(List<Book> books) {
-        String result = "";
-        for (Book book : books) {
-            result += book.getTitle() + " by " + book.getAuthor() + " | Rating: " + book.getRating() + "\n";
+    private LiveBookListModel newLiveView() {
+        if (liveViews.isEmpty()) {
+            subscribeToChanges();
         }
-        return result;
+        LiveBookListModel view = new LiveBookListModel();
+        liveViews.add(view);
+        return view;
+    }
+
+    /**
+     * Applies each batch of library changes to the live views on the event dispatch
+     * thread, requesting the next batch only once the last one has been applied, so
+     * a busy GUI slows the stream down instead of queueing work.
+     */
+    private void subscribeToChanges() {
+        library.changes().subscribe(new Flow.Subscriber<List<LibraryChange>>() {
+            private Flow.Subscription subscription;
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(1);
+            }
+
+            @Override
+            public void onNext(List<LibraryChange> batch) {
+                SwingUtilities.invokeLater(() -> {
+                    for (LiveBookListModel view : liveViews) {
+                        view.apply(batch);
+                    }
+                    subscription.request(1);
+                });
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                System.err.println("Library change stream failed: " + error);
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+    }
+
+    /**
+     * Creates a list showing each book as "title by author | Rating: n".
+     */
+    private JList<Book> newBookList(LiveBookListModel model, int rows) {
+        JList<Book> list = new JList<>(model);
+        list.setVisibleRowCount(rows);
+        list.setPrototypeCellValue(new Book("A reasonably long book title", "An Author's Name", 5));  // Fixed row size keeps huge lists fast.
+        list.setCellRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> list, Object value, int index, boolean selected, boolean focused) {
+                Book book = (Book) value;
+                String text = book.getTitle() + " by " + book.getAuthor() + " | Rating: " + book.getRating();
+                return super.getListCellRendererComponent(list, text, index, selected, focused);
+            }
+        });
+        return list;
     }
 
 
+    /**
+     * Starts the GUI. The frame is created on the event dispatch thread while the
+     * library is loaded on the main thread, so the two overlap.
+     *
+     * Arguments: --snapshot followed by a binary snapshot file to load at startup,
+     * and --shared followed by a catalog file to share the library with other
+     * processes on this machine; their changes are picked up once a second.
+     *
+     * @param args the optional --snapshot and --shared arguments
+     */
     public static void main(String[] args) {
+        StartupTimer.mark("main entered");
+        String snapshot = null;
+        String shared = null;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (args[i].equals("--snapshot")) {
+                snapshot = args[i + 1];
+            } else if (args[i].equals("--shared")) {
+                shared = args[i + 1];
+            }
+        }
+
         Library library = new Library(); 
-        new LibraryGUI(library);
+        CompletableFuture<Void> loading = new CompletableFuture<>();
+        SwingUtilities.invokeLater(() -> new LibraryGUI(library, loading));
+
+        SharedCatalog catalog = null;
+        try {
+            if (snapshot != null) {
+                library.addBooksFromSnapshot(snapshot);
+            }
+            if (shared != null) {
+                catalog = SharedCatalog.open(shared, library);
+            }
+        } catch (IOException e) {
+            System.out.println("Error opening the shared catalog.");
+        } finally {
+            loading.complete(null);
+        }
+
+        if (catalog != null) {
+            SharedCatalog sharedCatalog = catalog;
+            SwingUtilities.invokeLater(() -> new Timer(1000, e -> {
+                try {
+                    if (sharedCatalog.hasChanges()) {
+                        sharedCatalog.refresh();
+                    }
+                } catch (IOException ex) {
+                    System.out.println("Error reading the shared catalog.");
+                }
+            }).start());
+        }
     }
 }
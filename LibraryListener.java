@@ -0,0 +1,22 @@
+/**
+ * A LibraryListener is told about every change made to a Library's books, after
+ * the change has been applied. Listeners are called on the thread making the change.
+ */
+interface LibraryListener {
+
+    /**
+     * Called after a book has been added to the library.
+     *
+     * @param book the book that was added
+     */
+    void bookAdded(Book book);
+
+    /**
+     * Called after a book's rating or read status has changed.
+     *
+     * @param book      the book that changed, already holding its new values
+     * @param oldRating the rating before the change
+     * @param oldRead   the read status before the change
+     */
+    void bookUpdated(Book book, int oldRating, boolean oldRead);
+}
@@ -2,6 +2,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
 import java.util.List;
+import java.io.*;
 
 /*
  * File: LibraryTest.java
@@ -124,6 +125,263 @@ public class LibraryTest {
         assertEquals("The Hobbit", sortedBooks.get(1).getTitle());
         assertEquals("To Kill a Mockingbird", sortedBooks.get(2).getTitle());
     }
-    
 
+    @Test
+    public void testDeduplicateSkipsNormalizedDuplicates() {
+        library.setDeduplicate(true);
+        library.addBook(new Book("  the hobbit ", "J.R.R.  TOLKIEN", 0));
+        assertEquals(1, library.searchByTitle("The Hobbit").size());
+        assertEquals(1, library.getDuplicatesCollapsed());
+    }
+
+    @Test
+    public void testDeduplicateMergesReadStatus() {
+        library.setDeduplicate(true);
+        Book copy = new Book("The Hobbit", "J.R.R. Tolkien", 0);
+        copy.setRead(true);
+        library.addBook(copy);
+        assertTrue(book1.isRead());
+        assertEquals(5, book1.getRating());
+    }
+
+    @Test
+    public void testDuplicatesAddedWhenDeduplicateOff() {
+        library.addBook(new Book("The Hobbit", "J.R.R. Tolkien", 0));
+        assertEquals(2, library.searchByTitle("The Hobbit").size());
+    }
+
+    @Test
+    public void testAddNewBooksFromFileReadsOnlyAppendedLines() throws IOException {
+        File file = File.createTempFile("catalog", ".txt");
+        file.deleteOnExit();
+        try (Writer writer = new FileWriter(file)) {
+            writer.write("Dune;Frank Herbert\nEmma;Jane Austen\n");
+        }
+        assertEquals(2, library.addNewBooksFromFile(file.getPath()));
+
+        try (Writer writer = new FileWriter(file, true)) {
+            writer.write("Beloved;Toni Morrison\nHalf a li");
+        }
+        assertEquals(1, library.addNewBooksFromFile(file.getPath()));
+        assertEquals(1, library.searchByTitle("Dune").size());
+
+        try (Writer writer = new FileWriter(file, true)) {
+            writer.write("ne;Someone\n");
+        }
+        assertEquals(1, library.addNewBooksFromFile(file.getPath()));
+        assertEquals(1, library.searchByTitle("Half a line").size());
+        assertEquals(0, library.addNewBooksFromFile(file.getPath()));
+    }
+
+    @Test
+    public void testAddNewBooksFromFileRestartsWhenFileRewritten() throws IOException {
+        File file = File.createTempFile("catalog", ".txt");
+        file.deleteOnExit();
+        try (Writer writer = new FileWriter(file)) {
+            writer.write("Dune;Frank Herbert\nEmma;Jane Austen\n");
+        }
+        library.addNewBooksFromFile(file.getPath());
+        try (Writer writer = new FileWriter(file)) {
+            writer.write("Ulysses;James Joyce\n");
+        }
+        assertEquals(1, library.addNewBooksFromFile(file.getPath()));
+        assertEquals(1, library.searchByTitle("Ulysses").size());
+    }
+
+    @Test
+    public void testQueryCacheHitsAndCopies() {
+        library.enableQueryCache(10, 0);
+        library.searchByAuthor("Harper Lee").clear();
+        List<Book> results = library.searchByAuthor("HARPER LEE");
+        assertEquals(1, results.size());
+        assertEquals(1, library.getQueryCache().getHitCount());
+        assertEquals(1, library.getQueryCache().getMissCount());
+    }
+
+    @Test
+    public void testQueryCacheInvalidatedByWrites() {
+        library.enableQueryCache(10, 0);
+        assertEquals(1, library.searchByRating(5).size());
+        assertEquals(2, library.getAllBooksSortedByTitle().size());
+        library.searchByAuthor("Harper Lee");
+
+        library.rateBook("To Kill a Mockingbird", 5);
+        assertEquals(2, library.searchByRating(5).size());
+        assertTrue(library.searchByRating(4).isEmpty());
+
+        library.addBook(new Book("1984", "George Orwell", 5));
+        assertEquals(3, library.searchByRating(5).size());
+        assertEquals("1984", library.getAllBooksSortedByTitle().get(0).getTitle());
+
+        long hitsBefore = library.getQueryCache().getHitCount();
+        library.searchByAuthor("Harper Lee");
+        assertEquals(hitsBefore + 1, library.getQueryCache().getHitCount());
+    }
+
+    @Test
+    public void testQueryCacheEvictsLeastRecentlyUsed() {
+        library.enableQueryCache(2, 0);
+        library.searchByTitle("The Hobbit");
+        library.searchByTitle("To Kill a Mockingbird");
+        library.searchByTitle("The Hobbit");
+        library.searchByTitle("1984");
+        assertEquals(1, library.getQueryCache().getEvictionCount());
+        library.searchByTitle("The Hobbit");
+        assertEquals(2, library.getQueryCache().getHitCount());
+    }
+
+    @Test
+    public void testTracerRecordsOperations() {
+        library.getTracer().setSlowThresholdMillis(0);
+        library.searchByTitle("The Hobbit");
+        library.rateBook("The Hobbit", 4);
+        assertEquals(1, library.getTracer().getCount(OperationTracer.Operation.SEARCH_BY_TITLE));
+        assertEquals(1, library.getTracer().getCount(OperationTracer.Operation.RATE_BOOK));
+        assertTrue(library.getTracer().getPercentileNanos(OperationTracer.Operation.RATE_BOOK, 99) > 0);
+        assertTrue(library.getTracer().report().contains("SEARCH_BY_TITLE"));
+        assertTrue(library.getTracer().recentOperations(1).contains("RATE_BOOK"));
+        assertFalse(library.getTracer().getSlowOperations().isEmpty());
+    }
+
+    @Test
+    public void testTracerBucketsBoundDurations() {
+        for (long nanos : new long[]{0, 15, 16, 17, 1_000, 123_456_789, Long.MAX_VALUE}) {
+            long upper = OperationTracer.upperBoundOf(OperationTracer.bucketOf(nanos));
+            assertTrue(upper >= nanos);
+            assertTrue(upper - nanos <= nanos / 16 + 1);
+        }
+    }
+
+    @Test
+    public void testIndexesFollowRatingAndReadChanges() {
+        library.rateBook("The Hobbit", 3);
+        library.setToRead("The Hobbit");
+        assertTrue(library.searchByRating(5).stream().noneMatch(b -> b.getTitle().equals("The Hobbit")));
+        assertEquals("The Hobbit", library.searchByRating(3, true).get(0).getTitle());
+        assertTrue(library.searchByRating(3, false).isEmpty());
+        assertTrue(library.getReadBooks().stream().anyMatch(b -> b.getTitle().equals("The Hobbit")));
+        assertTrue(library.getUnreadBooks().stream().noneMatch(b -> b.getTitle().equals("The Hobbit")));
+    }
+
+    @Test
+    public void testSearchMatchesIgnoringCaseThroughIndex() {
+        library.addBook(new Book("the hobbit", "j.r.r. tolkien", 3));
+        assertEquals(2, library.searchByTitle("THE HOBBIT").size());
+    }
+
+    @Test
+    public void testStatsFollowAddsAndUpdates() {
+        library.addBook(new Book("The Silmarillion", "j.r.r. tolkien", 0));
+        library.setToRead("The Hobbit");
+        AuthorStats tolkien = library.getAuthorStats("J.R.R. TOLKIEN");
+        assertEquals("J.R.R. Tolkien", tolkien.getAuthor());
+        assertEquals(2, tolkien.getBookCount());
+        assertEquals(1, tolkien.getReadCount());
+        assertEquals(5.0, tolkien.getAverageRating(), 1e-9);
+        library.rateBook("The Silmarillion", 3);
+        assertEquals(4.0, library.getAuthorStats("J.R.R. Tolkien").getAverageRating(), 1e-9);
+        assertEquals("J.R.R. Tolkien", library.getAuthorStats().get(0).getAuthor());
+        assertNull(library.getAuthorStats("Nobody"));
+        assertEquals(1.0 / 3, library.getReadRatio(), 1e-9);
+        assertEquals(Integer.valueOf(1), library.getRatingDistribution().get(3));
+        assertEquals(4.0, library.getAverageRating(), 1e-9);
+    }
+
+    @Test
+    public void testUndoRedoRatingAndReadChanges() {
+        library.rateBook("The Hobbit", 2);
+        library.setToRead("The Hobbit");
+        assertTrue(library.undo());
+        assertFalse(book1.isRead());
+        assertTrue(library.undo());
+        assertEquals(5, book1.getRating());
+        assertEquals(1, library.searchByRating(5).size());
+        assertFalse(library.undo());
+        assertTrue(library.redo());
+        assertEquals(2, book1.getRating());
+        library.rateBook("The Hobbit", 3);
+        assertFalse(library.redo());  // A new change drops the redo history.
+        assertTrue(library.undo());
+        assertEquals(2, book1.getRating());
+    }
+
+    @Test
+    public void testHistoryAndPointInTimeState() throws Exception {
+        library.rateBook("The Hobbit", 1);
+        long before = System.currentTimeMillis();
+        Thread.sleep(5);
+        library.rateBook("The Hobbit", 3);
+        library.undo();
+        List<ChangeEvent> events = library.getHistory("The Hobbit");
+        assertEquals(4, events.size());
+        assertEquals(ChangeEvent.Kind.ADDED, events.get(0).getKind());
+        assertEquals(ChangeEvent.Kind.UNDONE, events.get(3).getKind());
+        assertEquals(1, library.getBookAsOf("The Hobbit", before).getRating());
+        assertNull(library.getBookAsOf("The Hobbit", 0));
+        assertEquals(3, library.getBookAsOfSequence("The Hobbit", events.get(2).getSequence()).getRating());
+        assertNull(library.getBookAsOfSequence("The Hobbit", events.get(0).getSequence() - 1));
+    }
+
+    @Test
+    public void testPointInTimeStateIsNullOnceHistoryIsLost() throws IOException {
+        Library small = new Library(new ChangeLog(4, 2), 1, 0);
+        small.addBook(new Book("Dune", "Frank Herbert", 0));
+        small.rateBook("Dune", 3);
+        for (int i = 1; i <= 4; i++) {
+            small.addBook(new Book("Filler " + i, "Someone", 0));  // Pushes Dune's events out of the ring.
+        }
+        assertTrue(small.getHistory("Dune").isEmpty());
+        assertNull(small.getBookAsOfSequence("Dune", 0));  // Only the current rating is known.
+        assertEquals(3, small.getBookAsOfSequence("Dune", 5).getRating());
+        assertEquals(3, small.getBookAsOf("Dune", System.currentTimeMillis()).getRating());
+    }
+
+    @Test
+    public void testHistorySpillsToDisk() throws IOException {
+        Library small = new Library(new ChangeLog(4, 2), 1, 0);
+        File spill = File.createTempFile("history", ".bin");
+        small.spillHistoryTo(spill.getPath());
+        small.addBook(new Book("Dune", "Frank Herbert", 0));
+        for (int i = 1; i <= 10; i++) {
+            small.addBook(new Book("Filler " + i, "Someone", 0));
+            small.rateBook("Dune", i);
+        }
+        List<ChangeEvent> events = small.getHistory("Dune");
+        assertEquals(11, events.size());
+        assertEquals(9, events.get(10).getOldRating());
+        for (int i = 1; i < events.size(); i++) {
+            assertTrue(events.get(i - 1).getSequence() < events.get(i).getSequence());
+        }
+        assertEquals(3, small.getBookAsOfSequence("Dune", events.get(3).getSequence()).getRating());
+        assertEquals(1, small.getHistory("Filler 1").size());  // Spilled, and kept apart from Dune's chain.
+        assertTrue(small.undo());
+        assertTrue(small.undo());
+        assertFalse(small.undo());  // Only the last two updates can be undone.
+        assertEquals(8, small.searchByTitle("Dune").get(0).getRating());
+        small.closeHistory();
+        assertEquals(13, small.getHistory("Dune").size());  // Still readable after closing.
+        spill.delete();
+    }
+
+    @Test
+    public void testSearchUsesNormalizedKeys() {
+        Book strasse = new Book("Die Stra\u00dfe", "Ren\u00e9e \ufb01sher", 3);  // "fi" ligature in the author.
+        library.addBook(strasse);
+        assertEquals(strasse, library.searchByTitle("DIE STRASSE").get(0));
+        assertEquals(strasse, library.searchByAuthor("REN\u00c9E FISHER").get(0));
+        assertEquals("plain lowercase", BookKeys.matchKey("plain lowercase"));
+    }
+
+    @Test
+    public void testSortsAccentedAuthorsInCollationOrder() {
+        library.addBook(new Book("Zebra", "\u00c9mile Zola", 1));
+        library.addBook(new Book("Apple", "Zadie Smith", 1));
+        List<Book> byAuthor = library.getAllBooksSortedByAuthor();
+        int emile = -1, zadie = -1;
+        for (int i = 0; i < byAuthor.size(); i++) {
+            emile = byAuthor.get(i).getAuthor().startsWith("\u00c9") ? i : emile;
+            zadie = byAuthor.get(i).getAuthor().equals("Zadie Smith") ? i : zadie;
+        }
+        assertTrue(emile < zadie);  // Raw compareTo would put the accented name last.
+    }
 }
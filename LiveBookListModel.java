@@ -0,0 +1,145 @@
+import javax.swing.*;
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * LiveBookListModel backs a JList of books that stays current as the library
+ * changes. A view is loaded once with {@link #show}, then kept up to date by
+ * {@link #apply} with each batch from the library's change stream. Only the rows
+ * that changed are inserted, removed or repainted; the library is not queried again.
+ *
+ * A view has a filter that decides which books belong in it, and optionally an
+ * order. Sorted views find rows by binary search. Unsorted views, such as search
+ * results, append new matches at the end and number each book as it arrives, so
+ * they are ordered by that number and also find rows by binary search.
+ * Must be used on the event dispatch thread.
+ */
+class LiveBookListModel extends AbstractListModel<Book> {
+    private static final long serialVersionUID = 1L;
+
+    private final List<Book> books = new ArrayList<>();
+    private final Map<Book, Integer> arrivals = new IdentityHashMap<>();  // Unsorted views only.
+    private int nextArrival;
+    private Predicate<Book> filter = book -> false;
+    private Comparator<Book> order;  // null keeps the order books arrive in
+
+    /**
+     * Replaces the view's contents.
+     *
+     * @param initial the books to show, already filtered and in order
+     * @param filter  decides whether a changed book belongs in the view
+     * @param order   the order of the view, or null for arrival order
+     */
+    void show(List<Book> initial, Predicate<Book> filter, Comparator<Book> order) {
+        int oldSize = books.size();
+        books.clear();
+        arrivals.clear();
+        if (oldSize > 0) {
+            fireIntervalRemoved(this, 0, oldSize - 1);
+        }
+        this.filter = filter;
+        this.order = order;
+        books.addAll(initial);
+        if (order == null) {
+            for (Book book : initial) {
+                arrivals.put(book, nextArrival++);
+            }
+        }
+        if (!books.isEmpty()) {
+            fireIntervalAdded(this, 0, books.size() - 1);
+        }
+    }
+
+    /**
+     * Applies a batch of library changes: new matching books are inserted, changed
+     * ones repainted, and books that no longer match removed.
+     *
+     * @param changes the batch from the library's change stream
+     */
+    void apply(List<LibraryChange> changes) {
+        for (LibraryChange change : changes) {
+            Book book = change.getBook();
+            int index = indexOf(book);
+            boolean matches = filter.test(book);
+            if (index >= 0 && matches) {
+                fireContentsChanged(this, index, index);
+            } else if (index >= 0) {
+                books.remove(index);
+                arrivals.remove(book);
+                fireIntervalRemoved(this, index, index);
+            } else if (matches) {
+                int at = insertionPoint(book);
+                books.add(at, book);
+                if (order == null) {
+                    arrivals.put(book, nextArrival++);
+                }
+                fireIntervalAdded(this, at, at);
+            }
+        }
+    }
+
+    private int indexOf(Book book) {
+        if (order == null) {
+            Integer arrival = arrivals.get(book);
+            if (arrival == null) {
+                return -1;
+            }
+            int low = 0;
+            int high = books.size() - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int midArrival = arrivals.get(books.get(mid));
+                if (midArrival < arrival) {
+                    low = mid + 1;
+                } else if (midArrival > arrival) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -1;
+        }
+        // Titles and authors never change, so the book is among those that compare equal to it.
+        for (int i = lowerBound(book); i < books.size() && order.compare(books.get(i), book) == 0; i++) {
+            if (books.get(i) == book) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int insertionPoint(Book book) {
+        if (order == null) {
+            return books.size();
+        }
+        int i = lowerBound(book);
+        while (i < books.size() && order.compare(books.get(i), book) == 0) {
+            i++;  // After equal books, as a stable sort of the library would place it.
+        }
+        return i;
+    }
+
+    private int lowerBound(Book book) {
+        int low = 0;
+        int high = books.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (order.compare(books.get(mid), book) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    @Override
+    public int getSize() {
+        return books.size();
+    }
+
+    @Override
+    public Book getElementAt(int index) {
+        return books.get(index);
+    }
+}
@@ -0,0 +1,108 @@
+/**
+ * LongIntHashMap is an open-addressing hash map from long keys to int values, with
+ * linear probing over two parallel arrays. The library uses it to map 64-bit hashes
+ * of normalized titles and authors to book ids without boxing either side.
+ */
+class LongIntHashMap {
+    private static final long FREE = 0;
+
+    private long[] keys;
+    private int[] values;
+    private int size;
+    private boolean hasFreeKey;  // Key 0 marks empty slots, so it is stored apart.
+    private int freeKeyValue;
+    private final int missingValue;
+
+    /**
+     * Creates an empty map.
+     *
+     * @param missingValue the value {@link #get} returns for absent keys
+     */
+    LongIntHashMap(int missingValue) {
+        this.missingValue = missingValue;
+        keys = new long[16];
+        values = new int[16];
+    }
+
+    /**
+     * Gets the value for a key.
+     *
+     * @param key the key
+     * @return the value, or the missing value if the key is absent
+     */
+    int get(long key) {
+        if (key == FREE) {
+            return hasFreeKey ? freeKeyValue : missingValue;
+        }
+        int mask = keys.length - 1;
+        for (int i = mix(key) & mask; ; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return values[i];
+            }
+            if (keys[i] == FREE) {
+                return missingValue;
+            }
+        }
+    }
+
+    /**
+     * Associates a value with a key, replacing any previous value.
+     *
+     * @param key   the key
+     * @param value the value
+     */
+    void put(long key, int value) {
+        if (key == FREE) {
+            size += hasFreeKey ? 0 : 1;
+            hasFreeKey = true;
+            freeKeyValue = value;
+            return;
+        }
+        int mask = keys.length - 1;
+        int i = mix(key) & mask;
+        while (keys[i] != FREE && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        if (keys[i] == FREE) {
+            keys[i] = key;
+            if (++size * 2 > keys.length) {
+                values[i] = value;
+                rehash();
+                return;
+            }
+        }
+        values[i] = value;
+    }
+
+    /**
+     * Gets the number of keys in the map.
+     *
+     * @return the size of the map
+     */
+    int size() {
+        return size;
+    }
+
+    private void rehash() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new int[oldKeys.length * 2];
+        int mask = keys.length - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] != FREE) {
+                int i = mix(oldKeys[j]) & mask;
+                while (keys[i] != FREE) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -11,11 +11,20 @@
 */
 
 import java.util.*; 
+import java.io.*;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
 
 public class MyLibrary {
 
+    private static final int OUTPUT_CHUNK = 1 << 16;
+
     private Library library; 
     private Scanner scanner;
+    private SharedCatalog sharedCatalog;  // null unless started with --shared
+    private CatalogTailer tailer;  // null unless a file is being followed
+    private final StringBuilder output = new StringBuilder(OUTPUT_CHUNK);  // Reused by printBooks.
 
     /**
       Constructor that initializes the library and scanner objects.
@@ -28,13 +37,45 @@ public class MyLibrary {
 
     /**
       Main method that starts the library.
-      @param args Command-line arguments (not used).
+      @param args Command-line arguments: optionally --shared followed by a catalog
+      file, to share the library with other processes on this machine.
     */
     public static void main(String[] args) {
         MyLibrary myLibrary = new MyLibrary();
+        if (args.length == 2 && args[0].equals("--shared")) {
+            myLibrary.attachSharedCatalog(args[1]);
+        }
         myLibrary.gameRun(); // Starts the Library
     }
 
+    /**
+      Attaches the library to a shared catalog file, loading the books already in it.
+      @param filename The shared catalog file.
+    */
+    public void attachSharedCatalog(String filename) {
+        try {
+            sharedCatalog = SharedCatalog.open(filename, library);
+            System.out.println("Using shared catalog " + filename + ".");
+        } catch (IOException e) {
+            System.out.println("Error opening the shared catalog.");
+        }
+    }
+
+    /**
+      Pulls in changes other processes have made to the shared catalog, if any.
+    */
+    private void refreshSharedCatalog() {
+        if (sharedCatalog != null && sharedCatalog.hasChanges()) {
+            synchronized (library) {  // Keeps the tailer's books from arriving mid-refresh.
+                try {
+                    sharedCatalog.refresh();
+                } catch (IOException e) {
+                    System.out.println("Error reading the shared catalog.");
+                }
+            }
+        }
+    }
+
     /**
       Method to run the main loop of the application, prompting for user commands.
       Basically the UI for program.
@@ -42,8 +83,11 @@ public class MyLibrary {
     public void gameRun() {
         String command;
         do {
-            System.out.println("\nEnter a command (search, addBook, setToRead, rate, getBooks, suggestRead, addBooks, quit):");
+            System.out.println("\nEnter a command (search, addBook, setToRead, rate, getBooks, suggestRead, addBooks, export, dedup, cache, trace, stats, undo, redo, history, tail, quit):");
             command = scanner.nextLine();
+            refreshSharedCatalog();  // Pick up changes from other processes before each command.
+            // A catalog tailer adds books from its own thread, so every library call below
+            // holds the library's monitor, but never while waiting for the user to type.
             switch (command) {
                 case "search":
                     search();  // Calls the search method to find books based on criteria.
@@ -66,8 +110,40 @@ public class MyLibrary {
                 case "addBooks":
                     addBooks();  // Adds multiple books from a file.
                     break;
+                case "export":
+                    exportBooks();  // Writes the library to a file.
+                    break;
+                case "dedup":
+                    toggleDedup();  // Turns duplicate detection on or off.
+                    break;
+                case "cache":
+                    toggleQueryCache();  // Turns the query cache on or off.
+                    break;
+                case "trace":
+                    printTrace();  // Shows operation latencies and slow operations.
+                    break;
+                case "stats":
+                    printStats();  // Shows reading statistics per author and overall.
+                    break;
+                case "undo":
+                    synchronized (library) {
+                        System.out.println(library.undo() ? "Undone." : "Nothing to undo.");  // Reverts the last rating or read change.
+                    }
+                    break;
+                case "redo":
+                    synchronized (library) {
+                        System.out.println(library.redo() ? "Redone." : "Nothing to redo.");  // Re-applies the last undone change.
+                    }
+                    break;
+                case "history":
+                    printHistory();  // Shows the change history of a book, or recent changes.
+                    break;
+                case "tail":
+                    tailFile();  // Follows a catalog file, adding books appended to it.
+                    break;
                 case "quit":
                     System.out.println("Exiting the library system.");  // Exits the application.
+                    closeHistory();
                     break;
                 default:
                     System.out.println("Invalid command.");
@@ -85,27 +161,27 @@ public class MyLibrary {
             case "title":
                 System.out.print("Enter title: ");
                 String title = scanner.nextLine();
-                List<Book> titleBooks = library.searchByTitle(title);  // Get a list of books with the given title
-                for (Book book : titleBooks) {  
-                    System.out.println(book);
+                synchronized (library) {
+                    List<Book> titleBooks = library.searchByTitle(title);  // Get a list of books with the given title
+                    printBooks(titleBooks);
                 }
                 break;
 
             case "author":
                 System.out.print("Enter author: ");
                 String author = scanner.nextLine();
-                List<Book> authorBooks = library.searchByAuthor(author);  // Get a list of books by the given author
-                for (Book book : authorBooks) {  
-                    System.out.println(book);
+                synchronized (library) {
+                    List<Book> authorBooks = library.searchByAuthor(author);  // Get a list of books by the given author
+                    printBooks(authorBooks);
                 }
                 break;
 
             case "rating":
                 System.out.print("Enter rating (1-5): ");
                 int rating = Integer.parseInt(scanner.nextLine());
-                List<Book> ratedBooks = library.searchByRating(rating);  // Get a list of books with the given rating
-                for (Book book : ratedBooks) {  
-                    System.out.println(book);
+                synchronized (library) {
+                    List<Book> ratedBooks = library.searchByRating(rating);  // Get a list of books with the given rating
+                    printBooks(ratedBooks);
                 }
                 break;
 
@@ -124,7 +200,9 @@ public class MyLibrary {
         System.out.print("Enter author: ");
         String author = scanner.nextLine();
         int rating = 0;  // Default rating is set to 0 when a book is added.
-        library.addBook(new Book(title, author, rating));
+        synchronized (library) {
+            library.addBook(new Book(title, author, rating));
+        }
     }
 
     /**
@@ -133,7 +211,9 @@ public class MyLibrary {
     public void setToRead() {
         System.out.print("Enter the title of the book to mark as read: ");
         String title = scanner.nextLine();
-        library.setToRead(title); 
+        synchronized (library) {
+            library.setToRead(title);
+        }
     }
 
     /**
@@ -144,7 +224,9 @@ public class MyLibrary {
         String title = scanner.nextLine();
         System.out.print("Enter the new rating (1-5): ");
         int rating = Integer.parseInt(scanner.nextLine());
-        library.rateBook(title, rating);
+        synchronized (library) {
+            library.rateBook(title, rating);
+        }
     }
 
     /**
@@ -156,33 +238,33 @@ public class MyLibrary {
         switch (option) {
             case 1:
                 // Get a list of all books sorted by title
-                List<Book> booksByTitle = library.getAllBooksSortedByTitle();
-                for (Book book : booksByTitle) {  
-                    System.out.println(book);  
+                synchronized (library) {
+                    List<Book> booksByTitle = library.getAllBooksSortedByTitle();
+                    printBooks(booksByTitle);
                 }
                 break;
 
             case 2:
                 // Get a list of all books sorted by author
-                List<Book> booksByAuthor = library.getAllBooksSortedByAuthor();
-                for (Book book : booksByAuthor) {  
-                    System.out.println(book);  
+                synchronized (library) {
+                    List<Book> booksByAuthor = library.getAllBooksSortedByAuthor();
+                    printBooks(booksByAuthor);
                 }
                 break;
 
             case 3:
                 // Get a list of all read books
-                List<Book> readBooks = library.getReadBooks();
-                for (Book book : readBooks) {  
-                    System.out.println(book);  
+                synchronized (library) {
+                    List<Book> readBooks = library.getReadBooks();
+                    printBooks(readBooks);
                 }
                 break;
 
             case 4:
                 // Get a list of all unread books
-                List<Book> unreadBooks = library.getUnreadBooks();
-                for (Book book : unreadBooks) {  
-                    System.out.println(book);  
+                synchronized (library) {
+                    List<Book> unreadBooks = library.getUnreadBooks();
+                    printBooks(unreadBooks);
                 }
                 break;
 
@@ -192,11 +274,35 @@ public class MyLibrary {
     }
 
 
+    /**
+     Prints one book per line. The books are rendered into a reused builder that is
+     written out in large chunks, instead of one println per book.
+     @param books The books to print.
+    */
+    private void printBooks(List<Book> books) {
+        for (Book book : books) {
+            book.appendTo(output).append(System.lineSeparator());
+            if (output.length() >= OUTPUT_CHUNK) {
+                flushOutput();
+            }
+        }
+        flushOutput();
+    }
+
+    private void flushOutput() {
+        System.out.append(output);
+        System.out.flush();
+        output.setLength(0);
+    }
+
     /**
      Suggests a random unread book for the user to read.
     */
     public void suggestRead() {
-        Book book = library.suggestRandomUnreadBook();  // Suggests an unread book.
+        Book book;
+        synchronized (library) {
+            book = library.suggestRandomUnreadBook();  // Suggests an unread book.
+        }
         if (book != null) {
             System.out.println("We suggest you read: " + book);  
         } else {
@@ -210,6 +316,180 @@ public class MyLibrary {
     public void addBooks() {
         System.out.print("Enter the file name: ");
         String filename = scanner.nextLine();
-        library.addBooksFromFile(filename);  
+        synchronized (library) {
+            library.addBooksFromFile(filename);
+        }
+    }
+
+    /**
+     Prompts the user for a file name and writes the whole library to it. The format
+     follows the extension: .csv, .jsonl or .bin, with an optional .gz suffix.
+    */
+    public void exportBooks() {
+        System.out.print("Enter the file name (.csv, .jsonl or .bin, optionally .gz): ");
+        String filename = scanner.nextLine();
+        boolean gzip = filename.endsWith(".gz");
+        String base = gzip ? filename.substring(0, filename.length() - 3) : filename;
+        BookExporter.Format format;
+        if (base.endsWith(".csv")) {
+            format = BookExporter.Format.CSV;
+        } else if (base.endsWith(".jsonl")) {
+            format = BookExporter.Format.JSON_LINES;
+        } else if (base.endsWith(".bin")) {
+            format = BookExporter.Format.BINARY;
+        } else {
+            System.out.println("Unknown export format.");
+            return;
+        }
+        try (OutputStream out = new FileOutputStream(filename)) {
+            synchronized (library) {
+                library.exportTo(out, format, gzip);
+            }
+            System.out.println("Library exported to " + filename + ".");
+        } catch (IOException e) {
+            System.out.println("Error writing the file.");
+        }
+    }
+
+    /**
+     Toggles duplicate detection, so that re-importing a file does not add the same books twice.
+    */
+    public void toggleDedup() {
+        synchronized (library) {
+            library.setDeduplicate(!library.isDeduplicating());
+            if (library.isDeduplicating()) {
+                System.out.println("Duplicate detection on.");
+            } else {
+                System.out.println("Duplicate detection off.");
+            }
+        }
+    }
+
+    /**
+     Toggles the query cache, printing its hit and miss statistics when it is turned off.
+    */
+    public void toggleQueryCache() {
+        synchronized (library) {
+            QueryCache cache = library.getQueryCache();
+            if (cache == null) {
+                library.enableQueryCache(1000, 60_000);
+                System.out.println("Query cache on.");
+            } else {
+                library.disableQueryCache();
+                System.out.println("Query cache off: " + cache);
+            }
+        }
+    }
+
+    /**
+     Prints the latency percentiles of every library operation, the slowest recent
+     operations and the last few operations traced.
+    */
+    public void printTrace() {
+        synchronized (library) {
+            OperationTracer tracer = library.getTracer();
+            System.out.print(tracer.report());
+            List<String> slow = tracer.getSlowOperations();
+            System.out.println(slow.size() + " slow operations:");
+            for (String entry : slow) {
+                System.out.println("  " + entry);
+            }
+            System.out.println("Recent operations:");
+            System.out.print(tracer.recentOperations(10));
+        }
+    }
+
+    /**
+      Prints the reading statistics: totals, the rating distribution and the top authors.
+    */
+    public void printStats() {
+        synchronized (library) {
+            System.out.print(library.statsReport(20));
+        }
+    }
+
+    /**
+      Prompts for a title and prints that book's change history, or the most
+      recent changes to any book if no title is given. Given a point in time, as
+      a local date and time or as #sequence, prints the book as it was then instead.
+    */
+    public void printHistory() {
+        System.out.print("Enter title (blank for recent changes): ");
+        String title = scanner.nextLine().trim();
+        try {
+            if (!title.isEmpty()) {
+                System.out.print("As of (blank for full history; a time like 2026-10-19T14:30, or #sequence): ");
+                String asOf = scanner.nextLine().trim();
+                if (!asOf.isEmpty()) {
+                    printBookAsOf(title, asOf);
+                    return;
+                }
+            }
+            List<ChangeEvent> events;
+            synchronized (library) {
+                events = title.isEmpty() ? library.getRecentChanges(20) : library.getHistory(title);
+            }
+            if (events.isEmpty()) {
+                System.out.println("No history found.");
+            }
+            for (ChangeEvent event : events) {
+                System.out.println(event);
+            }
+        } catch (IOException e) {
+            System.out.println("Error reading the history file.");
+        }
+    }
+
+    private void printBookAsOf(String title, String asOf) throws IOException {
+        Book book;
+        try {
+            if (asOf.startsWith("#")) {
+                long sequence = Long.parseLong(asOf.substring(1));
+                synchronized (library) {
+                    book = library.getBookAsOfSequence(title, sequence);
+                }
+            } else {
+                long millis = LocalDateTime.parse(asOf).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+                synchronized (library) {
+                    book = library.getBookAsOf(title, millis);
+                }
+            }
+        } catch (NumberFormatException | DateTimeParseException e) {
+            System.out.println("Invalid point in time.");
+            return;
+        }
+        System.out.println(book != null ? book : "No such book at that point.");
+    }
+
+    /**
+      Flushes the change history to its spill file, if any, before exiting.
+    */
+    private void closeHistory() {
+        synchronized (library) {
+            try {
+                library.closeHistory();
+            } catch (IOException e) {
+                System.out.println("Error writing the history file.");
+            }
+        }
+    }
+
+    /**
+      Prompts for a catalog file and follows it: books already in it are added now,
+      and books appended to it later are added as they are written. Following a
+      new file stops following the previous one.
+    */
+    public void tailFile() {
+        System.out.print("Enter filename to follow: ");
+        String filename = scanner.nextLine();
+        try {
+            if (tailer != null) {
+                tailer.close();
+            }
+            tailer = CatalogTailer.start(library, filename);
+            System.out.println("Following " + filename + ".");
+        } catch (IOException e) {
+            System.out.println("Error following the file.");
+        }
     }
 }
@@ -0,0 +1,249 @@
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * OperationTracer is the always-on, low-overhead latency trace behind every Library
+ * operation that reads, adds or changes books. Each call costs two {@link System#nanoTime()} reads and a few
+ * array writes; nothing is allocated unless the call exceeds the slow threshold.
+ *
+ * Three views are kept:
+ * <ul>
+ * <li>a lock-free ring buffer of the most recent operations with their duration and size,</li>
+ * <li>a log-linear latency histogram per operation, in the style of HdrHistogram, with
+ *     16 sub-buckets per power of two (percentiles are accurate to within about 6%),</li>
+ * <li>a bounded log of operations slower than a configurable threshold.</li>
+ * </ul>
+ * The "size" of an operation is the number of books it returned, changed or added.
+ * Concurrent writers never block each other; a reader racing a writer may see one
+ * ring entry half-updated, which is acceptable for diagnostics.
+ */
+public class OperationTracer {
+
+    /**
+     * The traced operations: the Library methods that add, find, list, change or
+     * export books, and the history queries. Counters, statistics, settings and the
+     * change stream are cheap or one-off and are not traced.
+     */
+    public enum Operation {
+        ADD_BOOK, ADD_BOOKS, ADD_BOOKS_FROM_FILE, ADD_NEW_BOOKS_FROM_FILE, ADD_BOOKS_FROM_SNAPSHOT,
+        SEARCH_BY_TITLE, SEARCH_BY_AUTHOR, SEARCH_BY_RATING, SET_TO_READ, RATE_BOOK,
+        SORTED_BY_TITLE, SORTED_BY_AUTHOR, READ_BOOKS, UNREAD_BOOKS, SUGGEST_UNREAD, EXPORT, UNDO, REDO,
+        HISTORY, RECENT_CHANGES, BOOK_AS_OF
+    }
+
+    private static final Operation[] OPERATIONS = Operation.values();
+    private static final int RING_SIZE = 1024;  // Must be a power of two.
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = 64 * SUB_BUCKETS;
+    private static final int SLOW_LOG_SIZE = 100;
+
+    private final AtomicLong cursor = new AtomicLong();
+    private final byte[] ringOperations = new byte[RING_SIZE];
+    private final long[] ringDurations = new long[RING_SIZE];
+    private final int[] ringSizes = new int[RING_SIZE];
+    private final long[] ringStarts = new long[RING_SIZE];
+    private final long originMillis = System.currentTimeMillis();
+    private final long originNanos = System.nanoTime();
+    private final AtomicLongArray[] histograms = new AtomicLongArray[OPERATIONS.length];
+    private final Deque<String> slowLog = new ArrayDeque<>();
+    private volatile boolean enabled = true;
+    private volatile long slowThresholdNanos = Long.getLong("library.slowOperationMillis", 100) * 1_000_000L;
+
+    /**
+     * Creates an empty tracer.
+     */
+    OperationTracer() {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new AtomicLongArray(BUCKETS);
+        }
+    }
+
+    /**
+     * Starts timing an operation.
+     *
+     * @return the start time to pass to {@link #record}, or 0 if tracing is off
+     */
+    long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Finishes timing an operation.
+     *
+     * @param operation the operation
+     * @param start     the value returned by {@link #start()}
+     * @param size      the number of books returned, changed or added
+     */
+    void record(Operation operation, long start, int size) {
+        if (start == 0) {
+            return;
+        }
+        long duration = System.nanoTime() - start;
+        int slot = (int) (cursor.getAndIncrement() & (RING_SIZE - 1));
+        ringOperations[slot] = (byte) operation.ordinal();
+        ringDurations[slot] = duration;
+        ringSizes[slot] = size;
+        ringStarts[slot] = start;
+        histograms[operation.ordinal()].incrementAndGet(bucketOf(duration));
+        if (duration >= slowThresholdNanos) {
+            logSlow(operation, duration, size);
+        }
+    }
+
+    private void logSlow(Operation operation, long duration, int size) {
+        String entry = String.format("%tT %s took %.1f ms (size %d)", new Date(), operation, duration / 1e6, size);
+        synchronized (slowLog) {
+            if (slowLog.size() == SLOW_LOG_SIZE) {
+                slowLog.removeFirst();
+            }
+            slowLog.addLast(entry);
+        }
+    }
+
+    /**
+     * Turns tracing on or off. It is on by default.
+     *
+     * @param enabled true to trace operations
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Checks whether tracing is on.
+     *
+     * @return true if operations are traced
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Sets how long an operation must take to be added to the slow-operation log.
+     * Defaults to the system property library.slowOperationMillis, or 100 ms.
+     *
+     * @param millis the threshold in milliseconds
+     */
+    public void setSlowThresholdMillis(long millis) {
+        slowThresholdNanos = millis * 1_000_000L;
+    }
+
+    /**
+     * Gets the slow-operation log, oldest first.
+     *
+     * @return up to the last 100 slow operations
+     */
+    public List<String> getSlowOperations() {
+        synchronized (slowLog) {
+            return new ArrayList<>(slowLog);
+        }
+    }
+
+    /**
+     * Gets the number of times an operation has been traced.
+     *
+     * @param operation the operation
+     * @return the number of traced calls
+     */
+    public long getCount(Operation operation) {
+        AtomicLongArray histogram = histograms[operation.ordinal()];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += histogram.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * Gets a latency percentile for an operation.
+     *
+     * @param operation  the operation
+     * @param percentile the percentile, between 0 and 100
+     * @return the latency in nanoseconds (the upper bound of its bucket), or 0 if the
+     *         operation has not been traced
+     */
+    public long getPercentileNanos(Operation operation, double percentile) {
+        AtomicLongArray histogram = histograms[operation.ordinal()];
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = histogram.get(i);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return upperBoundOf(i);
+            }
+        }
+        return upperBoundOf(BUCKETS - 1);
+    }
+
+    /**
+     * Formats the latency percentiles of every traced operation as a table.
+     *
+     * @return the report
+     */
+    public String report() {
+        StringBuilder out = new StringBuilder(String.format("%-24s %10s %10s %10s %10s %10s%n",
+                "operation", "count", "p50 ms", "p90 ms", "p99 ms", "max ms"));
+        for (Operation operation : OPERATIONS) {
+            long count = getCount(operation);
+            if (count > 0) {
+                out.append(String.format("%-24s %10d %10.3f %10.3f %10.3f %10.3f%n", operation, count,
+                        getPercentileNanos(operation, 50) / 1e6, getPercentileNanos(operation, 90) / 1e6,
+                        getPercentileNanos(operation, 99) / 1e6, getPercentileNanos(operation, 100) / 1e6));
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * Formats the most recent operations from the ring buffer, newest first.
+     *
+     * @param limit the most entries to include
+     * @return one line per operation
+     */
+    public String recentOperations(int limit) {
+        StringBuilder out = new StringBuilder();
+        long end = cursor.get();
+        for (long i = end - 1; i >= Math.max(0, end - Math.min(limit, RING_SIZE)); i--) {
+            int slot = (int) (i & (RING_SIZE - 1));
+            long millis = originMillis + (ringStarts[slot] - originNanos) / 1_000_000;
+            out.append(String.format("%tT %-24s %10.3f ms  size %d%n", new Date(millis),
+                    OPERATIONS[ringOperations[slot]], ringDurations[slot] / 1e6, ringSizes[slot]));
+        }
+        return out.toString();
+    }
+
+    /**
+     * Maps a duration to its log-linear bucket: the power of two it falls in,
+     * split into 16 equal sub-buckets.
+     */
+    static int bucketOf(long nanos) {
+        if (nanos < SUB_BUCKETS) {
+            return (int) Math.max(nanos, 0);
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(nanos) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((nanos >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    /**
+     * Gets the largest duration that falls in a bucket.
+     */
+    static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long sub = bucket % SUB_BUCKETS + SUB_BUCKETS;
+        return ((sub + 1) << shift) - 1;
+    }
+}
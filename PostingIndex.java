@@ -0,0 +1,50 @@
+/**
+ * PostingIndex maps a 64-bit key hash to every book id with that key, oldest first.
+ * Each key's ids form a chain threaded through one int array: the map holds the
+ * first and last id per key, and {@code next[id]} the id after it. Adding an id is
+ * O(1) and the whole index costs a few ints per book, with no per-key objects.
+ *
+ * Different keys can share a hash, so callers must check each id's actual key.
+ */
+class PostingIndex {
+    private final LongIntHashMap heads = new LongIntHashMap(-1);
+    private final LongIntHashMap tails = new LongIntHashMap(-1);
+    private final IntArrayList next = new IntArrayList();
+
+    /**
+     * Appends an id to its key's chain. Ids must be added in order 0, 1, 2, ...
+     *
+     * @param hash the key hash
+     * @param id   the next book id
+     */
+    void add(long hash, int id) {
+        next.add(-1);
+        int tail = tails.get(hash);
+        if (tail < 0) {
+            heads.put(hash, id);
+        } else {
+            next.set(tail, id);
+        }
+        tails.put(hash, id);
+    }
+
+    /**
+     * Gets the oldest id with the given key hash.
+     *
+     * @param hash the key hash
+     * @return the first id, or -1 if there is none
+     */
+    int first(long hash) {
+        return heads.get(hash);
+    }
+
+    /**
+     * Gets the id after the given one in its chain.
+     *
+     * @param id an id in the index
+     * @return the next id with the same key hash, or -1 at the end of the chain
+     */
+    int next(int id) {
+        return next.get(id);
+    }
+}
@@ -0,0 +1,70 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * File: PrimitiveCollectionsTest.java
+ * Description: Unit tests for the primitive collections behind Library's indexes using JUnit 5.
+ */
+
+public class PrimitiveCollectionsTest {
+
+    @Test
+    public void testIntIntHashMapGrowsAndKeepsZeroKey() {
+        IntIntHashMap map = new IntIntHashMap(-1);
+        for (int i = 0; i < 1000; i++) {
+            map.put(i * 31, i);
+        }
+        map.put(0, 42);
+        assertEquals(1000, map.size());
+        assertEquals(42, map.get(0));
+        assertEquals(999, map.get(999 * 31));
+        assertEquals(-1, map.get(7));
+    }
+
+    @Test
+    public void testLongIntHashMapHandlesNegativeKeys() {
+        LongIntHashMap map = new LongIntHashMap(-1);
+        map.put(Long.MIN_VALUE, 1);
+        map.put(-5L, 2);
+        map.put(0L, 3);
+        map.put(-5L, 4);
+        assertEquals(3, map.size());
+        assertEquals(1, map.get(Long.MIN_VALUE));
+        assertEquals(4, map.get(-5L));
+        assertEquals(3, map.get(0L));
+        assertEquals(-1, map.get(5L));
+    }
+
+    @Test
+    public void testIntBitmapSetOperations() {
+        IntBitmap a = new IntBitmap();
+        IntBitmap b = new IntBitmap();
+        a.set(1);
+        a.set(64);
+        a.set(200);
+        b.set(64);
+        b.set(300);
+        assertEquals(3, a.cardinality());
+        assertEquals(64, a.and(b).nextSetBit(0));
+        assertEquals(1, a.and(b).cardinality());
+        IntBitmap difference = a.andNot(b);
+        assertEquals(1, difference.nextSetBit(0));
+        assertEquals(200, difference.nextSetBit(2));
+        assertEquals(-1, difference.nextSetBit(201));
+        a.clear(64);
+        assertFalse(a.get(64));
+        assertFalse(a.get(10_000));
+    }
+
+    @Test
+    public void testPostingIndexKeepsInsertionOrderPerKey() {
+        PostingIndex index = new PostingIndex();
+        index.add(7L, 0);
+        index.add(9L, 1);
+        index.add(7L, 2);
+        assertEquals(0, index.first(7L));
+        assertEquals(2, index.next(0));
+        assertEquals(-1, index.next(2));
+        assertEquals(-1, index.first(8L));
+    }
+}
@@ -0,0 +1,197 @@
+import java.util.*;
+
+/**
+ * QueryCache is the optional bounded cache in front of the library's searches and
+ * sorted listings. Entries are keyed on the kind of query and its case-folded text,
+ * evicted least-recently-used once the cache is full and expired after a fixed time
+ * to live.
+ *
+ * Invalidation is driven by the library's writes and is kept precise: a search
+ * entry is dropped by key when a book matching it is added or re-rated, while
+ * the sorted listings, which every add affects, are invalidated by bumping a
+ * per-kind generation instead of being looked up and removed.
+ */
+public class QueryCache {
+
+    /**
+     * The kinds of query the cache can hold.
+     */
+    enum Kind {
+        TITLE, AUTHOR, RATING, SORTED_BY_TITLE, SORTED_BY_AUTHOR
+    }
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final long[] generations = new long[Kind.values().length];
+    private final LinkedHashMap<Key, Entry> entries;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Creates an empty cache.
+     *
+     * @param maxEntries the most entries to hold before evicting the least recently used
+     * @param ttlMillis  how long an entry stays valid, or 0 for no time limit
+     */
+    QueryCache(int maxEntries, long ttlMillis) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be at least 1");
+        }
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttlMillis * 1_000_000L;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (size() > QueryCache.this.maxEntries) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Looks up a cached result.
+     *
+     * @param kind  the kind of query
+     * @param query the case-folded query text
+     * @return the cached books, or null if absent, expired or invalidated
+     */
+    List<Book> get(Kind kind, String query) {
+        Key key = new Key(kind, query);
+        Entry entry = entries.get(key);
+        if (entry != null && (entry.generation != generations[kind.ordinal()]
+                || (ttlNanos > 0 && System.nanoTime() - entry.createdAt > ttlNanos))) {
+            entries.remove(key);
+            entry = null;
+        }
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.books;
+    }
+
+    /**
+     * Stores a result.
+     *
+     * @param kind  the kind of query
+     * @param query the case-folded query text
+     * @param books the result; the cache keeps this list, so it must not be modified
+     */
+    void put(Kind kind, String query, List<Book> books) {
+        entries.put(new Key(kind, query), new Entry(books, generations[kind.ordinal()], System.nanoTime()));
+    }
+
+    /**
+     * Drops a single entry.
+     *
+     * @param kind  the kind of query
+     * @param query the case-folded query text
+     */
+    void invalidate(Kind kind, String query) {
+        entries.remove(new Key(kind, query));
+    }
+
+    /**
+     * Invalidates every entry of one kind in O(1); stale entries are dropped when
+     * they are next looked up or evicted.
+     *
+     * @param kind the kind of query
+     */
+    void invalidateAll(Kind kind) {
+        generations[kind.ordinal()]++;
+    }
+
+    /**
+     * Gets the number of lookups answered from the cache.
+     *
+     * @return the hit count
+     */
+    public long getHitCount() {
+        return hits;
+    }
+
+    /**
+     * Gets the number of lookups that had to be computed.
+     *
+     * @return the miss count
+     */
+    public long getMissCount() {
+        return misses;
+    }
+
+    /**
+     * Gets the number of entries evicted to stay within the size bound.
+     *
+     * @return the eviction count
+     */
+    public long getEvictionCount() {
+        return evictions;
+    }
+
+    /**
+     * Gets the fraction of lookups answered from the cache.
+     *
+     * @return the hit ratio between 0 and 1, or 0 before any lookup
+     */
+    public double getHitRatio() {
+        long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * Gets the number of entries currently held, including stale ones not yet dropped.
+     *
+     * @return the number of entries
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Summarises the cache statistics.
+     *
+     * @return a one-line summary
+     */
+    @Override
+    public String toString() {
+        return String.format("%d entries, %d hits, %d misses (%.1f%% hit ratio), %d evictions",
+                entries.size(), hits, misses, getHitRatio() * 100, evictions);
+    }
+
+    private static final class Key {
+        final Kind kind;
+        final String query;
+
+        Key(Kind kind, String query) {
+            this.kind = kind;
+            this.query = query;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Key && ((Key) other).kind == kind && ((Key) other).query.equals(query);
+        }
+
+        @Override
+        public int hashCode() {
+            return kind.hashCode() * 31 + query.hashCode();
+        }
+    }
+
+    private static final class Entry {
+        final List<Book> books;
+        final long generation;
+        final long createdAt;
+
+        Entry(List<Book> books, long generation, long createdAt) {
+            this.books = books;
+            this.generation = generation;
+            this.createdAt = createdAt;
+        }
+    }
+}
@@ -0,0 +1,433 @@
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * ShardedLibrary spreads a library over several independent Library shards so that
+ * bulk imports and whole-library queries can use more than one core. It has the same
+ * public API as Library and can be used wherever a Library is expected.
+ *
+ * Books are partitioned by the hash of their normalized author, so author searches
+ * and duplicate detection only touch one shard. Title and rating searches, the
+ * read/unread listings and the sorted listings fan out to every shard in parallel
+ * and gather the results; sorted listings are combined with a k-way merge. Each shard
+ * keeps its own duplicate index and query cache. All shards record into this
+ * library's change log, so undo and redo follow the order changes were made in.
+ *
+ * Like Library, a ShardedLibrary is not safe for concurrent callers; the parallelism
+ * is internal to each call.
+ */
+public class ShardedLibrary extends Library {
+    private static final int IMPORT_BATCH = 8192;
+
+    private final Library[] shards;
+
+    /**
+     * Creates a sharded library with one shard per available processor.
+     */
+    public ShardedLibrary() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a sharded library with the given number of shards.
+     *
+     * @param shardCount the number of shards, at least 1
+     */
+    public ShardedLibrary(int shardCount) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("shardCount must be at least 1");
+        }
+        shards = new Library[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Library(changeLog(), shardCount, i);
+        }
+    }
+
+    /**
+     * Gets the number of shards.
+     *
+     * @return the number of shards
+     */
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    /**
+     * Gets one shard, for example to read its query cache statistics.
+     *
+     * @param index the shard index
+     * @return the shard
+     */
+    public Library getShard(int index) {
+        return shards[index];
+    }
+
+    private int shardIndex(String author) {
+        int hash = normalize(author).hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), shards.length);
+    }
+
+    private Library shardFor(String author) {
+        return shards[shardIndex(author)];
+    }
+
+    @Override
+    public void addBook(Book book) {
+        long start = getTracer().start();
+        Library shard = shardFor(book.getAuthor());
+        int before = shard.getBookCount();
+        shard.addBook(book);
+        getTracer().record(OperationTracer.Operation.ADD_BOOK, start, shard.getBookCount() - before);
+    }
+
+    /**
+     * Adds every book a parser reads. Books are routed to their shards in batches,
+     * and each batch is added by all shards in parallel while the next is parsed.
+     * Listeners are told about each batch on the calling thread once it has been added.
+     */
+    @Override
+    public int addBooks(BookParser parser) throws IOException {
+        long start = getTracer().start();
+        BookRecord record = new BookRecord();
+        List<List<Book>> batches = newBatches();
+        List<List<Book>> adding = newBatches();
+        CompletableFuture<Void> pending = CompletableFuture.completedFuture(null);
+        int count = 0;
+        try {
+            while (parser.next(record)) {
+                Book book = record.toBook();
+                batches.get(shardIndex(book.getAuthor())).add(book);
+                if (++count % IMPORT_BATCH == 0) {
+                    pending.join();
+                    notifyBatches(adding);
+                    adding = batches;
+                    pending = addInParallel(adding);
+                    batches = newBatches();
+                }
+            }
+            pending.join();
+            notifyBatches(adding);
+            adding = batches;
+            pending = addInParallel(adding);
+        } finally {
+            pending.join();  // Never leave shards being written to, even if parsing failed.
+            notifyBatches(adding);
+        }
+        getTracer().record(OperationTracer.Operation.ADD_BOOKS, start, count);
+        return count;
+    }
+
+    private List<List<Book>> newBatches() {
+        List<List<Book>> batches = new ArrayList<>(shards.length);
+        for (int i = 0; i < shards.length; i++) {
+            batches.add(new ArrayList<>());
+        }
+        return batches;
+    }
+
+    private CompletableFuture<Void> addInParallel(List<List<Book>> batches) {
+        CompletableFuture<?>[] adds = new CompletableFuture<?>[shards.length];
+        for (int i = 0; i < shards.length; i++) {
+            Library shard = shards[i];
+            List<Book> batch = batches.get(i);
+            adds[i] = CompletableFuture.runAsync(() -> batch.removeIf(book -> !shard.insert(book)));
+        }
+        return CompletableFuture.allOf(adds);
+    }
+
+    /**
+     * Tells the shards' listeners about the books a finished batch added, then empties
+     * the batch so that it is never reported twice.
+     */
+    private void notifyBatches(List<List<Book>> batches) {
+        for (int i = 0; i < shards.length; i++) {
+            for (Book book : batches.get(i)) {
+                shards[i].notifyAdded(book);
+            }
+            batches.get(i).clear();
+        }
+    }
+
+    @Override
+    void updateBook(Book book, int rating, boolean read) {
+        shardFor(book.getAuthor()).updateBook(book, rating, read);
+    }
+
+    @Override
+    Book keptBook(Book book) {
+        return shardFor(book.getAuthor()).keptBook(book);
+    }
+
+    @Override
+    int historyId(Book book) {
+        return shardFor(book.getAuthor()).historyId(book);
+    }
+
+    @Override
+    Book bookAt(int historyId) {
+        return shards[historyId % shards.length].bookAt(historyId);
+    }
+
+    @Override
+    void addListener(LibraryListener listener) {
+        for (Library shard : shards) {
+            shard.addListener(listener);
+        }
+    }
+
+    @Override
+    void removeListener(LibraryListener listener) {
+        for (Library shard : shards) {
+            shard.removeListener(listener);
+        }
+    }
+
+    @Override
+    public void setDeduplicate(boolean enabled) {
+        for (Library shard : shards) {
+            shard.setDeduplicate(enabled);
+        }
+    }
+
+    @Override
+    public boolean isDeduplicating() {
+        return shards[0].isDeduplicating();
+    }
+
+    @Override
+    public int getDuplicatesCollapsed() {
+        int total = 0;
+        for (Library shard : shards) {
+            total += shard.getDuplicatesCollapsed();
+        }
+        return total;
+    }
+
+    @Override
+    public void enableQueryCache(int maxEntries, long ttlMillis) {
+        for (Library shard : shards) {
+            shard.enableQueryCache(Math.max(1, maxEntries / shards.length), ttlMillis);
+        }
+    }
+
+    @Override
+    public void disableQueryCache() {
+        for (Library shard : shards) {
+            shard.disableQueryCache();
+        }
+    }
+
+    /**
+     * Returns null: each shard has its own query cache, see {@link #getShard(int)}.
+     */
+    @Override
+    public QueryCache getQueryCache() {
+        return null;
+    }
+
+    @Override
+    public List<Book> searchByTitle(String title) {
+        return traced(OperationTracer.Operation.SEARCH_BY_TITLE, getTracer().start(), gather(shard -> shard.searchByTitle(title)));
+    }
+
+    @Override
+    public List<Book> searchByAuthor(String author) {
+        return traced(OperationTracer.Operation.SEARCH_BY_AUTHOR, getTracer().start(), shardFor(author).searchByAuthor(author));
+    }
+
+    @Override
+    public List<Book> searchByRating(int rating) {
+        return traced(OperationTracer.Operation.SEARCH_BY_RATING, getTracer().start(), gather(shard -> shard.searchByRating(rating)));
+    }
+
+    @Override
+    public List<Book> searchByRating(int rating, boolean read) {
+        return traced(OperationTracer.Operation.SEARCH_BY_RATING, getTracer().start(), gather(shard -> shard.searchByRating(rating, read)));
+    }
+
+    /**
+     * Marks the first book found with the given title as read. Titles are not the
+     * shard key, so "first" means first in shard order rather than insertion order.
+     */
+    @Override
+    public boolean setToRead(String title) {
+        long start = getTracer().start();
+        Library shard = firstShardWithTitle(title);
+        boolean found = shard != null && shard.setToRead(title);
+        if (shard == null) {
+            System.out.println("Book not found.");
+        }
+        getTracer().record(OperationTracer.Operation.SET_TO_READ, start, found ? 1 : 0);
+        return found;
+    }
+
+    /**
+     * Rates the first book found with the given title. Titles are not the shard key,
+     * so "first" means first in shard order rather than insertion order.
+     */
+    @Override
+    public boolean rateBook(String title, int rating) {
+        long start = getTracer().start();
+        Library shard = firstShardWithTitle(title);
+        boolean found = shard != null && shard.rateBook(title, rating);
+        if (shard == null) {
+            System.out.println("Book not found.");
+        }
+        getTracer().record(OperationTracer.Operation.RATE_BOOK, start, found ? 1 : 0);
+        return found;
+    }
+
+    private Library firstShardWithTitle(String title) {
+        OptionalInt index = IntStream.range(0, shards.length).parallel()
+                .filter(i -> !shards[i].searchByTitle(title).isEmpty())
+                .min();
+        return index.isPresent() ? shards[index.getAsInt()] : null;
+    }
+
+    @Override
+    public List<Book> getAllBooksSortedByTitle() {
+        return traced(OperationTracer.Operation.SORTED_BY_TITLE, getTracer().start(), mergeSorted(Library::getAllBooksSortedByTitle, Book.BY_TITLE));
+    }
+
+    @Override
+    public List<Book> getAllBooksSortedByAuthor() {
+        return traced(OperationTracer.Operation.SORTED_BY_AUTHOR, getTracer().start(), mergeSorted(Library::getAllBooksSortedByAuthor, Book.BY_AUTHOR));
+    }
+
+    @Override
+    public List<Book> getReadBooks() {
+        return traced(OperationTracer.Operation.READ_BOOKS, getTracer().start(), gather(Library::getReadBooks));
+    }
+
+    @Override
+    public List<Book> getUnreadBooks() {
+        return traced(OperationTracer.Operation.UNREAD_BOOKS, getTracer().start(), gather(Library::getUnreadBooks));
+    }
+
+    @Override
+    public int getBookCount() {
+        int total = 0;
+        for (Library shard : shards) {
+            total += shard.getBookCount();
+        }
+        return total;
+    }
+
+    @Override
+    public int getReadCount() {
+        int total = 0;
+        for (Library shard : shards) {
+            total += shard.getReadCount();
+        }
+        return total;
+    }
+
+    @Override
+    public SortedMap<Integer, Integer> getRatingDistribution() {
+        SortedMap<Integer, Integer> distribution = new TreeMap<>();
+        for (Library shard : shards) {
+            shard.getRatingDistribution().forEach((rating, count) -> distribution.merge(rating, count, Integer::sum));
+        }
+        return distribution;
+    }
+
+    /**
+     * Gets one author's statistics from the shard that owns the author.
+     */
+    @Override
+    public AuthorStats getAuthorStats(String author) {
+        return shardFor(author).getAuthorStats(author);
+    }
+
+    /**
+     * Concatenates every shard's author statistics. Each author lives in exactly one
+     * shard, so no entries need combining.
+     */
+    @Override
+    public List<AuthorStats> getAuthorStats() {
+        List<AuthorStats> stats = new ArrayList<>();
+        for (Library shard : shards) {
+            stats.addAll(shard.getAuthorStats());
+        }
+        stats.sort(AUTHOR_STATS_ORDER);
+        return stats;
+    }
+
+    @Override
+    public Book suggestRandomUnreadBook() {
+        long start = getTracer().start();
+        List<Book> unreadBooks = getUnreadBooks();
+        Book suggestion = unreadBooks.isEmpty() ? null : unreadBooks.get(new Random().nextInt(unreadBooks.size()));
+        getTracer().record(OperationTracer.Operation.SUGGEST_UNREAD, start, suggestion != null ? 1 : 0);
+        return suggestion;
+    }
+
+    @Override
+    Iterable<Book> allBooks() {
+        List<Iterable<Book>> parts = new ArrayList<>(shards.length);
+        for (Library shard : shards) {
+            parts.add(shard.allBooks());
+        }
+        return () -> parts.stream().flatMap(part -> StreamSupport.stream(part.spliterator(), false)).iterator();
+    }
+
+    /**
+     * Records a query on the facade's tracer. The start time is taken when the
+     * arguments are evaluated, left to right, so it precedes the query itself.
+     */
+    private List<Book> traced(OperationTracer.Operation operation, long start, List<Book> results) {
+        getTracer().record(operation, start, results.size());
+        return results;
+    }
+
+    /**
+     * Runs a query on every shard in parallel and concatenates the results in shard order.
+     */
+    private List<Book> gather(java.util.function.Function<Library, List<Book>> query) {
+        List<List<Book>> parts = Arrays.stream(shards).parallel().map(query).collect(Collectors.toList());
+        int size = 0;
+        for (List<Book> part : parts) {
+            size += part.size();
+        }
+        List<Book> results = new ArrayList<>(size);
+        for (List<Book> part : parts) {
+            results.addAll(part);
+        }
+        return results;
+    }
+
+    /**
+     * Sorts every shard in parallel, then merges the sorted runs with a heap.
+     * Ties are broken by shard index, so the merge is deterministic.
+     */
+    private List<Book> mergeSorted(java.util.function.Function<Library, List<Book>> sort, Comparator<Book> order) {
+        List<List<Book>> runs = Arrays.stream(shards).parallel().map(sort).collect(Collectors.toList());
+        int size = 0;
+        for (List<Book> run : runs) {
+            size += run.size();
+        }
+        int[] positions = new int[runs.size()];
+        PriorityQueue<Integer> heap = new PriorityQueue<>((a, b) -> {
+            int c = order.compare(runs.get(a).get(positions[a]), runs.get(b).get(positions[b]));
+            return c != 0 ? c : Integer.compare(a, b);
+        });
+        for (int i = 0; i < runs.size(); i++) {
+            if (!runs.get(i).isEmpty()) {
+                heap.add(i);
+            }
+        }
+        List<Book> merged = new ArrayList<>(size);
+        while (!heap.isEmpty()) {
+            int run = heap.poll();
+            merged.add(runs.get(run).get(positions[run]++));
+            if (positions[run] < runs.get(run).size()) {
+                heap.add(run);
+            }
+        }
+        return merged;
+    }
+}
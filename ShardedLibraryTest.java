@@ -0,0 +1,119 @@
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * File: ShardedLibraryTest.java
+ * Description: Tests that ShardedLibrary behaves like a single Library using JUnit 5.
+ */
+public class ShardedLibraryTest {
+    private Library single;
+    private ShardedLibrary sharded;
+
+    @BeforeEach
+    public void setUp() {
+        single = new Library();
+        sharded = new ShardedLibrary(4);
+        single.addBooksFromFile("books.txt");
+        sharded.addBooksFromFile("books.txt");
+    }
+
+    private static void assertSameOrder(List<Book> expected, List<Book> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).toString(), actual.get(i).toString());
+        }
+    }
+
+    @Test
+    public void testImportSpreadsOverShards() {
+        int total = 0;
+        for (int i = 0; i < sharded.getShardCount(); i++) {
+            total += sharded.getShard(i).getUnreadBooks().size();
+        }
+        assertEquals(single.getUnreadBooks().size(), total);
+        assertEquals(single.getUnreadBooks().size(), sharded.getUnreadBooks().size());
+    }
+
+    @Test
+    public void testSortedListingsMatchSingleLibrary() {
+        assertSameOrder(single.getAllBooksSortedByTitle(), sharded.getAllBooksSortedByTitle());
+        assertSameOrder(single.getAllBooksSortedByAuthor(), sharded.getAllBooksSortedByAuthor());
+    }
+
+    @Test
+    public void testSearchesAndWrites() {
+        assertEquals(1, sharded.searchByAuthor("jennifer ackerman").size());
+        assertTrue(sharded.rateBook("The Genius of Birds", 5));
+        assertTrue(sharded.setToRead("The Genius of Birds"));
+        assertEquals(1, sharded.searchByRating(5).size());
+        assertEquals("The Genius of Birds", sharded.getReadBooks().get(0).getTitle());
+        assertFalse(sharded.rateBook("Non-Existent Book", 4));
+    }
+
+    @Test
+    public void testDeduplicateAcrossImports() {
+        sharded.setDeduplicate(true);
+        int before = sharded.getUnreadBooks().size();
+        sharded.addBooksFromFile("books.txt");
+        assertEquals(before, sharded.getUnreadBooks().size());
+        assertEquals(before, sharded.getDuplicatesCollapsed());
+    }
+
+    @Test
+    public void testExportCoversAllShards() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        sharded.exportTo(bytes, BookExporter.Format.BINARY, false);
+        Library copy = new Library();
+        assertEquals(single.getUnreadBooks().size(), BookSnapshot.read(new ByteArrayInputStream(bytes.toByteArray()), copy));
+    }
+
+    @Test
+    public void testStatsMatchSingleLibrary() {
+        assertEquals(single.getBookCount(), sharded.getBookCount());
+        assertEquals(single.getReadCount(), sharded.getReadCount());
+        assertEquals(single.getRatingDistribution(), sharded.getRatingDistribution());
+        assertEquals(single.statsReport(Integer.MAX_VALUE), sharded.statsReport(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void testUndoFollowsChangeOrderAcrossShards() {
+        List<Book> unread = sharded.getUnreadBooks();
+        Book first = unread.get(0);
+        Book last = unread.get(unread.size() - 1);
+        sharded.setToRead(first.getTitle());
+        sharded.setToRead(last.getTitle());
+        assertTrue(sharded.undo());
+        assertTrue(first.isRead());
+        assertFalse(last.isRead());
+        assertTrue(sharded.undo());
+        assertFalse(first.isRead());
+        assertEquals(single.getReadCount(), sharded.getReadCount());
+    }
+
+    @Test
+    public void testListenersAreCalledOnTheImportingThread() {
+        List<Thread> threads = new ArrayList<>();
+        sharded.addListener(new LibraryListener() {
+            @Override
+            public void bookAdded(Book book) {
+                threads.add(Thread.currentThread());
+            }
+
+            @Override
+            public void bookUpdated(Book book, int oldRating, boolean oldRead) {
+            }
+        });
+        sharded.addBooksFromFile("books.txt");
+        assertEquals(single.getBookCount(), threads.size());
+        assertTrue(threads.stream().allMatch(thread -> thread == Thread.currentThread()));
+
+        sharded.setDeduplicate(true);
+        threads.clear();
+        sharded.addBooksFromFile("books.txt");  // Every book collapses into one already held.
+        assertTrue(threads.isEmpty());
+    }
+}
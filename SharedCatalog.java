@@ -0,0 +1,381 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * SharedCatalog lets several processes on one machine work on the same library.
+ * Each process keeps its own Library in memory and attaches it to a catalog file;
+ * local changes are written through to the file, and {@link #refresh()} pulls in the
+ * changes other processes have made since the last refresh.
+ *
+ * The file is memory-mapped. Its header holds a change sequence number that every
+ * write increments, and a ring of the last {@value #LOG_SIZE} changes with the offset
+ * of the record each one touched, so a refresh only decodes the records that changed.
+ * A reader that falls further behind scans the per-record sequence numbers instead.
+ * Writers hold an exclusive {@link FileLock} while they write and readers a shared one
+ * while they read; within one JVM the same file is additionally guarded by a lock,
+ * since file locks are held per process.
+ *
+ * File layout: the 64-byte header (magic, version, sequence, end of data, record
+ * count), then the change log, then the records. Each record holds its last-changed
+ * sequence, rating, read flag and the UTF-8 title and author. Records are only ever
+ * appended, and rating and read status are updated in place.
+ *
+ * Books that were in the library before it was attached are not published.
+ */
+public class SharedCatalog implements Closeable, LibraryListener {
+    private static final int MAGIC = 0x4C425343;  // "LBSC"
+    private static final int VERSION = 1;
+    private static final int SEQUENCE = 8;
+    private static final int END = 16;
+    private static final int COUNT = 24;
+    private static final int LOG = 64;
+    static final int LOG_SIZE = 256;
+    private static final int LOG_ENTRY = 16;
+    private static final int DATA = LOG + LOG_SIZE * LOG_ENTRY;
+    private static final int INITIAL_SIZE = 1 << 20;
+
+    private static final int RECORD_SEQUENCE = 0;
+    private static final int RECORD_RATING = 8;
+    private static final int RECORD_READ = 12;
+    private static final int RECORD_TITLE_LENGTH = 13;
+    private static final int RECORD_AUTHOR_LENGTH = 17;
+    private static final int RECORD_TEXT = 21;
+
+    private static final Map<Path, ReentrantLock> PROCESS_LOCKS = new ConcurrentHashMap<>();
+
+    private final Library library;
+    private final FileChannel channel;
+    private final ReentrantLock processLock;
+    private MappedByteBuffer map;
+    private final Map<Long, Book> booksByOffset = new HashMap<>();
+    private final Map<Book, Long> offsetsByBook = new IdentityHashMap<>();
+    private long lastSeen;
+    private boolean applying;
+
+    private SharedCatalog(Path path, Library library) throws IOException {
+        this.library = library;
+        this.channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+        this.processLock = PROCESS_LOCKS.computeIfAbsent(path, p -> new ReentrantLock());
+        FileLock lock = lock(false);
+        try {
+            if (channel.size() < DATA) {
+                grow(INITIAL_SIZE);
+                map.putInt(0, MAGIC);
+                map.putInt(4, VERSION);
+                map.putLong(SEQUENCE, 0);
+                map.putLong(END, DATA);
+                map.putInt(COUNT, 0);
+            } else {
+                remap();
+                if (map.getInt(0) != MAGIC || map.getInt(4) != VERSION) {
+                    throw new IOException("Not a shared catalog: " + path);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        } finally {
+            unlock(lock);
+        }
+    }
+
+    /**
+     * Opens (creating if needed) a catalog file, loads every book in it into the
+     * library, and from then on writes the library's changes through to the file.
+     *
+     * @param filename the catalog file
+     * @param library  the library to attach
+     * @return the open catalog
+     * @throws IOException if the file cannot be opened or is not a catalog
+     */
+    public static SharedCatalog open(String filename, Library library) throws IOException {
+        Path path = Paths.get(filename).toAbsolutePath().normalize();
+        SharedCatalog catalog = new SharedCatalog(path, library);
+        catalog.refresh();
+        library.addListener(catalog);
+        return catalog;
+    }
+
+    /**
+     * Checks, without locking or decoding anything, whether another process has
+     * changed the catalog since the last refresh.
+     *
+     * @return true if a refresh would find changes
+     */
+    public boolean hasChanges() {
+        return map.getLong(SEQUENCE) != lastSeen;
+    }
+
+    /**
+     * Gets the change sequence number seen by the last refresh or write.
+     *
+     * @return the last seen sequence number
+     */
+    public long getSequence() {
+        return lastSeen;
+    }
+
+    /**
+     * Applies the changes made by other processes since the last refresh: new
+     * records are added to the library and changed ones update their book.
+     *
+     * @return the number of records added or updated
+     * @throws IOException if the catalog cannot be read
+     */
+    public int refresh() throws IOException {
+        FileLock lock = lock(true);
+        try {
+            remap();
+            long sequence = map.getLong(SEQUENCE);
+            if (sequence == lastSeen) {
+                return 0;
+            }
+            Set<Long> changed = changedSinceFromLog(sequence);
+            if (changed == null) {
+                changed = changedSinceFromScan();
+            }
+            applying = true;
+            library.setRecordingUndo(false);  // Other processes' changes are not the local user's to undo.
+            try {
+                for (long offset : changed) {
+                    apply(offset);
+                }
+            } finally {
+                library.setRecordingUndo(true);
+                applying = false;
+            }
+            lastSeen = sequence;
+            return changed.size();
+        } finally {
+            unlock(lock);
+        }
+    }
+
+    /**
+     * Collects the changed record offsets from the change log.
+     *
+     * @return the offsets, or null if the log no longer reaches back to the last refresh
+     */
+    private Set<Long> changedSinceFromLog(long sequence) {
+        if (sequence - lastSeen > LOG_SIZE) {
+            return null;
+        }
+        Set<Long> changed = new LinkedHashSet<>();
+        for (long s = lastSeen + 1; s <= sequence; s++) {
+            int entry = LOG + (int) (s % LOG_SIZE) * LOG_ENTRY;
+            if (map.getLong(entry) != s) {
+                return null;
+            }
+            changed.add(map.getLong(entry + 8));
+        }
+        return changed;
+    }
+
+    /**
+     * Collects the changed record offsets by scanning every record's sequence number.
+     */
+    private Set<Long> changedSinceFromScan() {
+        Set<Long> changed = new LinkedHashSet<>();
+        long end = map.getLong(END);
+        for (long offset = DATA; offset < end; offset += recordLength(offset)) {
+            if (map.getLong((int) offset + RECORD_SEQUENCE) > lastSeen) {
+                changed.add(offset);
+            }
+        }
+        return changed;
+    }
+
+    private void apply(long offset) {
+        int at = (int) offset;
+        int rating = map.getInt(at + RECORD_RATING);
+        boolean read = map.get(at + RECORD_READ) != 0;
+        Book book = booksByOffset.get(offset);
+        if (book != null) {
+            library.updateBook(book, rating, read);
+            return;
+        }
+        int titleLength = map.getInt(at + RECORD_TITLE_LENGTH);
+        int authorLength = map.getInt(at + RECORD_AUTHOR_LENGTH);
+        book = new Book(decode(at + RECORD_TEXT, titleLength), decode(at + RECORD_TEXT + titleLength, authorLength), rating);
+        book.setRead(read);
+        library.addBook(book);
+        Book kept = library.keptBook(book);  // With dedup on, an earlier book may have absorbed this one.
+        if (kept != null) {
+            booksByOffset.put(offset, kept);
+            offsetsByBook.putIfAbsent(kept, offset);
+        }
+    }
+
+    @Override
+    public void bookAdded(Book book) {
+        if (applying) {
+            return;
+        }
+        byte[] title = book.getTitle().getBytes(StandardCharsets.UTF_8);
+        byte[] author = book.getAuthor().getBytes(StandardCharsets.UTF_8);
+        try {
+            FileLock lock = lock(false);
+            try {
+                long offset = map.getLong(END);
+                long end = offset + RECORD_TEXT + title.length + author.length;
+                if (end > channel.size()) {
+                    grow(Math.max(end, channel.size() * 2));
+                } else {
+                    remap();
+                }
+                int at = (int) offset;
+                map.putInt(at + RECORD_RATING, book.getRating());
+                map.put(at + RECORD_READ, (byte) (book.isRead() ? 1 : 0));
+                map.putInt(at + RECORD_TITLE_LENGTH, title.length);
+                map.putInt(at + RECORD_AUTHOR_LENGTH, author.length);
+                map.put(at + RECORD_TEXT, title);
+                map.put(at + RECORD_TEXT + title.length, author);
+                map.putLong(END, end);
+                map.putInt(COUNT, map.getInt(COUNT) + 1);
+                publish(offset);
+                booksByOffset.put(offset, book);
+                offsetsByBook.put(book, offset);
+            } finally {
+                unlock(lock);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void bookUpdated(Book book, int oldRating, boolean oldRead) {
+        Long offset = offsetsByBook.get(book);
+        if (applying || offset == null) {
+            return;
+        }
+        try {
+            FileLock lock = lock(false);
+            try {
+                remap();
+                int at = offset.intValue();
+                map.putInt(at + RECORD_RATING, book.getRating());
+                map.put(at + RECORD_READ, (byte) (book.isRead() ? 1 : 0));
+                publish(offset);
+            } finally {
+                unlock(lock);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Stamps a written record with the next sequence number and logs the change.
+     * The header sequence is written last, once the record is complete.
+     */
+    private void publish(long offset) {
+        long sequence = map.getLong(SEQUENCE) + 1;
+        map.putLong((int) offset + RECORD_SEQUENCE, sequence);
+        int entry = LOG + (int) (sequence % LOG_SIZE) * LOG_ENTRY;
+        map.putLong(entry, sequence);
+        map.putLong(entry + 8, offset);
+        map.putLong(SEQUENCE, sequence);
+        if (lastSeen == sequence - 1) {
+            lastSeen = sequence;  // Nothing from other processes in between.
+        }
+    }
+
+    private int recordLength(long offset) {
+        int at = (int) offset;
+        return RECORD_TEXT + map.getInt(at + RECORD_TITLE_LENGTH) + map.getInt(at + RECORD_AUTHOR_LENGTH);
+    }
+
+    private String decode(int at, int length) {
+        byte[] bytes = new byte[length];
+        map.get(at, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Maps the whole file again if another process has grown it.
+     */
+    private void remap() throws IOException {
+        long size = channel.size();
+        if (map == null || map.capacity() != size) {
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Shared catalog larger than 2 GiB.");
+            }
+            map = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    private void grow(long size) throws IOException {
+        channel.write(ByteBuffer.wrap(new byte[1]), size - 1);
+        remap();
+    }
+
+    private FileLock lock(boolean shared) throws IOException {
+        processLock.lock();
+        try {
+            return channel.lock(0, Long.MAX_VALUE, shared);
+        } catch (IOException | RuntimeException e) {
+            processLock.unlock();
+            throw e;
+        }
+    }
+
+    private void unlock(FileLock lock) throws IOException {
+        try {
+            lock.release();
+        } finally {
+            processLock.unlock();
+        }
+    }
+
+    /**
+     * Stops writing the library's changes to the catalog and closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        library.removeListener(this);
+        channel.close();
+    }
+
+    /**
+     * A minimal command line for scripting a catalog from other processes:
+     * <pre>java SharedCatalog file add title author
+     * java SharedCatalog file rate title rating
+     * java SharedCatalog file read title
+     * java SharedCatalog file list</pre>
+     */
+    public static void main(String[] args) throws IOException {
+        Library library = new Library();
+        SharedCatalog catalog = open(args[0], library);  // Listens to the library; the body never touches it.
+        try {
+            switch (args[1]) {
+                case "add":
+                    library.addBook(new Book(args[2], args[3], 0));
+                    break;
+                case "rate":
+                    library.rateBook(args[2], Integer.parseInt(args[3]));
+                    break;
+                case "read":
+                    library.setToRead(args[2]);
+                    break;
+                case "list":
+                    for (Book book : library.getAllBooksSortedByTitle()) {
+                        System.out.println(book);
+                    }
+                    break;
+                default:
+                    System.out.println("Invalid command.");
+            }
+        } finally {
+            catalog.close();
+        }
+    }
+}
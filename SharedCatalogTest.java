@@ -0,0 +1,134 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.*;
+import java.nio.file.Paths;
+
+/*
+ * File: SharedCatalogTest.java
+ * Description: Tests for sharing a catalog between libraries and processes using JUnit 5.
+ */
+public class SharedCatalogTest {
+    private File file;
+    private Library writer;
+    private Library reader;
+    private SharedCatalog writerCatalog;
+    private SharedCatalog readerCatalog;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        file = File.createTempFile("catalog", ".shared");
+        file.delete();
+        file.deleteOnExit();
+        writer = new Library();
+        reader = new Library();
+        writerCatalog = SharedCatalog.open(file.getPath(), writer);
+        readerCatalog = SharedCatalog.open(file.getPath(), reader);
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        writerCatalog.close();
+        readerCatalog.close();
+    }
+
+    @Test
+    public void testChangesReachOtherLibraryOnRefresh() throws IOException {
+        writer.addBook(new Book("The Hobbit", "J.R.R. Tolkien", 0));
+        writer.addBook(new Book("Beloved", "Toni Morrison", 0));
+        assertTrue(readerCatalog.hasChanges());
+        assertEquals(2, readerCatalog.refresh());
+        assertEquals(1, reader.searchByAuthor("Toni Morrison").size());
+
+        writer.rateBook("The Hobbit", 5);
+        writer.setToRead("The Hobbit");
+        assertEquals(1, readerCatalog.refresh());
+        Book hobbit = reader.searchByTitle("The Hobbit").get(0);
+        assertEquals(5, hobbit.getRating());
+        assertTrue(hobbit.isRead());
+        assertFalse(readerCatalog.hasChanges());
+        assertEquals(0, readerCatalog.refresh());
+    }
+
+    @Test
+    public void testReaderWritesBackWithoutEcho() throws IOException {
+        writer.addBook(new Book("Beloved", "Toni Morrison", 0));
+        readerCatalog.refresh();
+        reader.rateBook("Beloved", 4);
+        assertEquals(1, writerCatalog.refresh());
+        assertEquals(4, writer.searchByTitle("Beloved").get(0).getRating());
+        assertEquals(1, writer.getUnreadBooks().size());
+        assertEquals(0, readerCatalog.refresh());
+    }
+
+    @Test
+    public void testRemoteUpdateToCollapsedDuplicateReachesKeptBook() throws IOException {
+        reader.setDeduplicate(true);
+        writer.addBook(new Book("Beloved", "Toni Morrison", 0));
+        Book duplicate = new Book("BELOVED", "Toni Morrison", 0);
+        writer.addBook(duplicate);
+        readerCatalog.refresh();
+        assertEquals(1, reader.getBookCount());
+
+        writer.updateBook(duplicate, 4, true);
+        readerCatalog.refresh();
+        Book kept = reader.searchByTitle("Beloved").get(0);
+        assertEquals(4, kept.getRating());
+        assertTrue(kept.isRead());
+    }
+
+    @Test
+    public void testUndoLeavesRemoteChangesAlone() throws IOException {
+        writer.addBook(new Book("Beloved", "Toni Morrison", 0));
+        writer.addBook(new Book("Emma", "Jane Austen", 0));
+        readerCatalog.refresh();
+        reader.rateBook("Emma", 2);
+        writer.rateBook("Beloved", 5);
+        readerCatalog.refresh();
+
+        assertTrue(reader.undo());  // Undoes the local rating only.
+        assertEquals(0, reader.searchByTitle("Emma").get(0).getRating());
+        assertFalse(reader.undo());
+        assertEquals(5, reader.searchByTitle("Beloved").get(0).getRating());
+        writerCatalog.refresh();
+        assertEquals(5, writer.searchByTitle("Beloved").get(0).getRating());
+    }
+
+    @Test
+    public void testFarBehindReaderFallsBackToScan() throws IOException {
+        writer.addBook(new Book("Beloved", "Toni Morrison", 0));
+        for (int i = 0; i < SharedCatalog.LOG_SIZE + 10; i++) {
+            writer.rateBook("Beloved", i % 5 + 1);
+        }
+        writer.addBook(new Book("Emma", "Jane Austen", 0));
+        assertEquals(2, readerCatalog.refresh());
+        assertEquals((SharedCatalog.LOG_SIZE + 9) % 5 + 1, reader.searchByTitle("Beloved").get(0).getRating());
+    }
+
+    @Test
+    public void testCatalogGrowsBeyondInitialMapping() throws IOException {
+        String padding = "x".repeat(1000);
+        for (int i = 0; i < 2000; i++) {
+            writer.addBook(new Book("Title " + i + padding, "Author", 0));
+        }
+        assertEquals(2000, readerCatalog.refresh());
+        assertEquals(2000, reader.getUnreadBooks().size());
+    }
+
+    @Test
+    public void testChangesFromAnotherProcess() throws Exception {
+        String classpath = Paths.get(SharedCatalog.class.getProtectionDomain().getCodeSource().getLocation().toURI()).toString();
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        run(java, "-cp", classpath, "SharedCatalog", file.getPath(), "add", "Dune", "Frank Herbert");
+        run(java, "-cp", classpath, "SharedCatalog", file.getPath(), "rate", "Dune", "5");
+        assertEquals(1, readerCatalog.refresh());
+        assertEquals(5, reader.searchByTitle("Dune").get(0).getRating());
+    }
+
+    private static void run(String... command) throws Exception {
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        process.getInputStream().transferTo(OutputStream.nullOutputStream());
+        assertEquals(0, process.waitFor());
+    }
+}
@@ -0,0 +1,91 @@
+import java.io.Reader;
+import java.util.Locale;
+
+/**
+ * The catalog formats the library can read out of the box. Constants are listed in
+ * detection order: JSON Lines, tab-separated and CSV are recognised from their first
+ * line, and anything else is read as the original semicolon format.
+ */
+public enum StandardBookFormat implements BookFormat {
+    /** One JSON object per line with "title", "author" and optional "rating"/"read". */
+    JSON_LINES {
+        @Override
+        public boolean accepts(String firstLine) {
+            return firstLine.trim().startsWith("{");
+        }
+
+        @Override
+        public boolean isHeader(String firstLine) {
+            return false;
+        }
+
+        @Override
+        public BookParser newParser(Reader in) {
+            return new JsonLinesBookParser(in);
+        }
+    },
+
+    /** Tab-separated title, author, optional rating and read columns; no quoting. */
+    TSV {
+        @Override
+        public boolean accepts(String firstLine) {
+            return firstLine.indexOf('\t') >= 0;
+        }
+
+        @Override
+        public boolean isHeader(String firstLine) {
+            return startsWithTitleColumn(firstLine, '\t');
+        }
+
+        @Override
+        public BookParser newParser(Reader in) {
+            return new DelimitedBookParser(in, '\t', false);
+        }
+    },
+
+    /**
+     * RFC 4180 comma-separated values with a header. Plain title;author lines often
+     * contain commas, so CSV is only recognised from its title,author header.
+     */
+    CSV {
+        @Override
+        public boolean accepts(String firstLine) {
+            return isHeader(firstLine);
+        }
+
+        @Override
+        public boolean isHeader(String firstLine) {
+            return startsWithTitleColumn(firstLine.replace("\"", ""), ',');
+        }
+
+        @Override
+        public BookParser newParser(Reader in) {
+            return new DelimitedBookParser(in, ',', true);
+        }
+    },
+
+    /**
+     * The original title;author format. The author is taken from after the last
+     * semicolon, so titles may contain semicolons of their own.
+     */
+    SEMICOLON {
+        @Override
+        public boolean accepts(String firstLine) {
+            return true;
+        }
+
+        @Override
+        public boolean isHeader(String firstLine) {
+            return startsWithTitleColumn(firstLine, ';');
+        }
+
+        @Override
+        public BookParser newParser(Reader in) {
+            return new DelimitedBookParser(in, ';', false);
+        }
+    };
+
+    private static boolean startsWithTitleColumn(String line, char separator) {
+        return line.trim().toLowerCase(Locale.ROOT).startsWith("title" + separator);
+    }
+}
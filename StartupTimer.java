@@ -0,0 +1,62 @@
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * StartupTimer records how long each phase of GUI startup takes, measured from the
+ * moment the JVM process started. The report is printed to standard error when the
+ * first frame is shown, if the system property {@code library.startupTiming} is set.
+ *
+ * With {@code library.exitAfterStartup} set, the application exits as soon as the
+ * first frame is shown; this is used for class-data-sharing training runs.
+ */
+final class StartupTimer {
+    private static final boolean ENABLED = Boolean.getBoolean("library.startupTiming");
+    private static final boolean EXIT_AFTER_STARTUP = Boolean.getBoolean("library.exitAfterStartup");
+    private static final long ORIGIN_NANOS = System.nanoTime();
+    private static final long JVM_UPTIME_MILLIS = ENABLED ? uptimeAtOrigin() : 0;
+    private static final StringBuilder REPORT = new StringBuilder();
+
+    private StartupTimer() {
+    }
+
+    /**
+     * Records that a startup phase has finished. Safe to call from any thread.
+     *
+     * @param phase a short name for the phase
+     */
+    static void mark(String phase) {
+        if (!ENABLED) {
+            return;
+        }
+        long millis = JVM_UPTIME_MILLIS + (System.nanoTime() - ORIGIN_NANOS) / 1_000_000;
+        synchronized (REPORT) {
+            REPORT.append(String.format("  %6d ms  %s%n", millis, phase));
+        }
+    }
+
+    /**
+     * Records that the first frame is on screen, then prints the report and, for
+     * training runs, exits.
+     */
+    static void firstFrameShown() {
+        mark("first frame shown");
+        if (ENABLED) {
+            synchronized (REPORT) {
+                System.err.print("Startup timing (since JVM start):" + System.lineSeparator() + REPORT);
+            }
+        }
+        if (EXIT_AFTER_STARTUP) {
+            System.exit(0);
+        }
+    }
+
+    /**
+     * Works out how long the JVM had been running when this class was loaded, using
+     * the process start time rather than the management API, which is slow to load.
+     */
+    private static long uptimeAtOrigin() {
+        return ProcessHandle.current().info().startInstant()
+                .map(start -> Duration.between(start, Instant.now()).toMillis())
+                .orElse(0L);
+    }
+}